@@ -19,6 +19,7 @@ public class Screen extends Element<Screen> implements ElementComponent.NeedsCom
     private final int gr5;
     private final ScreenBuffer screenBuffer;
     private Vector pos;
+    private BufferedImage graticule;
 
     /**
      * Creates a new screen
@@ -46,6 +47,19 @@ public class Screen extends Element<Screen> implements ElementComponent.NeedsCom
         return screenBuffer;
     }
 
+    /**
+     * Publishes the frame drawn to the screen buffer.
+     *
+     * @return the changed region of the screen in component coordinates, or null if nothing has changed
+     * @see ScreenBuffer#publish()
+     */
+    public Rectangle publish() {
+        Rectangle r = screenBuffer.publish();
+        if (r != null)
+            r.translate(pos.x, pos.y);
+        return r;
+    }
+
     /**
      * Creates a screen shot
      *
@@ -78,22 +92,35 @@ public class Screen extends Element<Screen> implements ElementComponent.NeedsCom
 
     /**
      * Draws the grid to the given {@link Graphics2D} object.
+     * The grid is drawn only once to a translucent image, which is then
+     * copied every time the screen is painted.
      *
      * @param gr   the {@link Graphics2D} instance to use
      * @param posx x pos
      * @param posy ypos
      */
     public void grawGrid(Graphics2D gr, int posx, int posy) {
+        if (graticule == null)
+            graticule = createGraticule();
+        gr.drawImage(graticule, posx, posy, null);
+    }
+
+    private BufferedImage createGraticule() {
+        // the lines at the right and the bottom border are included
+        BufferedImage image = new BufferedImage(10 * grid + 1, 8 * grid + 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D gr = image.createGraphics();
         gr.setColor(Style.GRID.getColor());
         for (int x = 0; x <= 10; x++)
-            gr.drawLine(posx + x * grid, posy, posx + x * grid, posy + 8 * grid);
+            gr.drawLine(x * grid, 0, x * grid, 8 * grid);
         for (int y = 0; y <= 8; y++)
-            gr.drawLine(posx, posy + y * grid, posx + 10 * grid, posy + y * grid);
+            gr.drawLine(0, y * grid, 10 * grid, y * grid);
 
         for (int x = 0; x <= 50; x++)
-            gr.drawLine(posx + x * gr5, posy + grid * 4 - gr5, posx + x * gr5, posy + grid * 4 + gr5);
+            gr.drawLine(x * gr5, grid * 4 - gr5, x * gr5, grid * 4 + gr5);
         for (int y = 0; y <= 40; y++)
-            gr.drawLine(posx + 5 * grid - gr5, posy + y * gr5, posx + 5 * grid + gr5, posy + y * gr5);
+            gr.drawLine(5 * grid - gr5, y * gr5, 5 * grid + gr5, y * gr5);
+        gr.dispose();
+        return image;
     }
 
     @Override
@@ -184,9 +184,35 @@ public class Channel implements Observer {
         return inv;
     }
 
+    /**
+     * Creates the output signal of the channel.
+     * The frontend (coupling, inversion and amplification) is folded into
+     * the input signal, so that this work is done only once every time a knob
+     * has changed and not every time the signal is evaluated.
+     */
     @Override
     public void hasChanged() {
-        output.setSignal(new Frontend(this));
+        PeriodicSignal s = input.getSignalProvider().getSignal();
+        if (getCoupling() == Coupling.GND)
+            output.setSignal(s.affine(0, 0));
+        else {
+            double factor = (1 + getVar() * 2) / getAmplitude();
+            if (isInv())
+                factor = -factor;
+            double offset = 0;
+            if (getCoupling() == Coupling.AC)
+                offset = -s.mean() * factor;
+            output.setSignal(s.affine(factor, offset));
+        }
+    }
+
+    /**
+     * Adds an observer which is notified if the output signal has changed
+     *
+     * @param observer the observer
+     */
+    public void addObserver(Observer observer) {
+        output.addObserver(observer);
     }
 
     /**
@@ -196,54 +222,4 @@ public class Channel implements Observer {
         return output.getSignal();
     }
 
-    private static final class Frontend implements PeriodicSignal {
-        private final PeriodicSignal s;
-        private final Coupling coupling;
-        private final boolean isInv;
-        private final double amplitude;
-        private final double var;
-
-        /**
-         * Creates a new frontend
-         *
-         * @param channel the channel parameters
-         */
-        private Frontend(Channel channel) {
-            this.s = channel.getInput().getSignalProvider().getSignal();
-            coupling = channel.getCoupling();
-            amplitude = channel.getAmplitude();
-            var = channel.getVar();
-            isInv = channel.isInv();
-        }
-
-
-        @Override
-        public double v(double t) {
-            if (coupling == Coupling.GND)
-                return 0;
-            else {
-                double v = s.v(t);
-
-                if (coupling == Coupling.AC)
-                    v -= s.mean();
-
-                if (isInv)
-                    v = -v;
-                return v / amplitude * (1 + var * 2);
-            }
-        }
-
-        @Override
-        public double period() {
-            return s.period();
-        }
-
-        @Override
-        public double mean() {
-            if (coupling == Coupling.DC)
-                return s.mean();
-            return 0;
-        }
-    }
-
 }
@@ -0,0 +1,182 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The frame clock shared by all oscilloscopes.
+ * A single {@link FrameScheduler} ticks all registered clients. In every tick the
+ * frames of all clients are drawn in parallel on a bounded pool. After all frames
+ * are complete, the changed regions are combined, so that every component is
+ * repainted only once per frame, regardless of the number of scopes it shows.
+ */
+public final class FrameClock {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameClock.class);
+    private static final FrameClock INSTANCE = new FrameClock();
+
+    /**
+     * A client which draws a frame in every tick
+     */
+    public interface Client {
+        /**
+         * Draws a frame
+         *
+         * @return the changed region in the coordinates of the component, maybe null
+         */
+        Rectangle drawFrame();
+
+        /**
+         * @return the component which shows the frames
+         */
+        JComponent getComponent();
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final ExecutorService pool;
+    private final FrameScheduler scheduler;
+    private final CopyOnWriteArrayList<Client> clients;
+
+    /**
+     * @return the frame clock shared by all oscilloscopes
+     */
+    public static FrameClock getInstance() {
+        return INSTANCE;
+    }
+
+    private FrameClock() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new frame clock
+     *
+     * @param threads the number of threads used to draw the frames
+     */
+    FrameClock(int threads) {
+        this(threads, new ScheduledThreadPoolExecutor(1, daemonThreads("frame-clock")));
+    }
+
+    /**
+     * Creates a new frame clock
+     *
+     * @param threads  the number of threads used to draw the frames
+     * @param executor the single threaded executor which runs the ticks
+     */
+    FrameClock(int threads, ScheduledThreadPoolExecutor executor) {
+        this.executor = executor;
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), daemonThreads("frame-render"));
+        clients = new CopyOnWriteArrayList<>();
+        scheduler = new FrameScheduler(executor, this::tick);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Registers a client. The clock is started if it was not running.
+     *
+     * @param client the client to tick
+     */
+    public synchronized void register(Client client) {
+        if (!clients.contains(client))
+            clients.add(client);
+        scheduler.start();
+    }
+
+    /**
+     * Removes a client. The clock is stopped if there are no clients left.
+     * A frame of the client which is currently drawn completes.
+     *
+     * @param client the client to remove
+     */
+    public synchronized void unregister(Client client) {
+        clients.remove(client);
+        if (clients.isEmpty())
+            scheduler.stop();
+    }
+
+    /**
+     * Executes the given runnable on the thread of the clock.
+     * The runnable is executed after the current tick has completed, so it
+     * never runs concurrently to a frame.
+     *
+     * @param runnable the runnable
+     */
+    public void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    /**
+     * @return the achieved frame rate in frames per second
+     */
+    public double getFps() {
+        return scheduler.getFps();
+    }
+
+    /**
+     * @return the number of frames dropped because a tick took too long
+     */
+    public long getDroppedFrames() {
+        return scheduler.getDroppedFrames();
+    }
+
+    /**
+     * Stops the clock and its threads
+     */
+    void shutdown() {
+        scheduler.stop();
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    private void tick() {
+        List<Client> c = new ArrayList<>(clients);
+        Rectangle[] changed = new Rectangle[c.size()];
+        if (c.size() == 1)
+            changed[0] = c.get(0).drawFrame();
+        else if (c.size() > 1) {
+            List<Callable<Rectangle>> tasks = new ArrayList<>(c.size());
+            for (Client client : c)
+                tasks.add(client::drawFrame);
+            try {
+                List<Future<Rectangle>> results = pool.invokeAll(tasks);
+                for (int i = 0; i < changed.length; i++)
+                    changed[i] = get(results.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        Map<JComponent, Rectangle> repaint = new LinkedHashMap<>();
+        for (int i = 0; i < changed.length; i++)
+            if (changed[i] != null && c.get(i).getComponent() != null)
+                repaint.merge(c.get(i).getComponent(), changed[i], Rectangle::union);
+        for (Map.Entry<JComponent, Rectangle> e : repaint.entrySet())
+            e.getKey().repaint(e.getValue());
+    }
+
+    private static Rectangle get(Future<Rectangle> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            LOGGER.error("error drawing frame", e.getCause());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import java.awt.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Calls a frame task repeatedly with an adaptive rate.
+ * The cost of every frame is measured, and the period is set to a multiple of the
+ * average cost, limited by the period of the highest rate (the refresh rate of the
+ * display) and the period of the lowest rate.
+ * The next frame is scheduled only after the current frame has finished. So if a
+ * frame takes longer than planned, the frames which are due in the meantime are
+ * dropped instead of being executed back to back.
+ * Every start begins a new chain of frames. A frame only schedules its successor
+ * if its chain is still the current one, so a restart while a frame is running
+ * never leads to two chains. The executor has to run the frames one after the
+ * other, e.g. by using a single thread.
+ */
+public final class FrameScheduler {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    /**
+     * The lowest frame rate
+     */
+    private static final int MIN_FPS = 10;
+    /**
+     * The frame rate used if the refresh rate of the display is unknown
+     */
+    private static final int DEFAULT_MAX_FPS = 60;
+    /**
+     * The period is this factor times the average cost of a frame, so
+     * the render thread is not busy all the time
+     */
+    private static final double HEADROOM = 1.5;
+    /**
+     * The weight of a new measurement in the moving averages
+     */
+    private static final double SMOOTHING = 0.1;
+
+    private final ScheduledExecutorService executor;
+    private final Runnable task;
+    private final long minPeriod;
+    private final long maxPeriod;
+    private final LongSupplier nanoTime;
+    private volatile boolean running;
+    private volatile int generation;
+    private ScheduledFuture<?> future;
+    // only accessed by the frames
+    private int measuredGeneration;
+    private double cost;
+    private double interval;
+    private long lastStart;
+    private volatile double fps;
+    private volatile long dropped;
+
+    /**
+     * Creates a new scheduler which runs at a rate between 10 fps and
+     * the refresh rate of the display
+     *
+     * @param executor the executor which runs the task
+     * @param task     the task to call every frame
+     */
+    public FrameScheduler(ScheduledExecutorService executor, Runnable task) {
+        this(executor, task, MIN_FPS, getDisplayRefreshRate());
+    }
+
+    /**
+     * Creates a new scheduler
+     *
+     * @param executor the executor which runs the task
+     * @param task     the task to call every frame
+     * @param minFps   the lowest frame rate
+     * @param maxFps   the highest frame rate
+     */
+    public FrameScheduler(ScheduledExecutorService executor, Runnable task, int minFps, int maxFps) {
+        this(executor, task, minFps, maxFps, System::nanoTime);
+    }
+
+    /**
+     * Creates a new scheduler which measures the time by the given clock
+     *
+     * @param executor the executor which runs the task
+     * @param task     the task to call every frame
+     * @param minFps   the lowest frame rate
+     * @param maxFps   the highest frame rate
+     * @param nanoTime the clock in nanoseconds
+     */
+    FrameScheduler(ScheduledExecutorService executor, Runnable task, int minFps, int maxFps, LongSupplier nanoTime) {
+        if (minFps <= 0 || maxFps < minFps)
+            throw new IllegalArgumentException("invalid frame rates");
+        this.executor = executor;
+        this.task = task;
+        this.minPeriod = NANOS_PER_SECOND / maxFps;
+        this.maxPeriod = NANOS_PER_SECOND / minFps;
+        this.nanoTime = nanoTime;
+    }
+
+    private static int getDisplayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless())
+            return DEFAULT_MAX_FPS;
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        if (rate == DisplayMode.REFRESH_RATE_UNKNOWN || rate < MIN_FPS)
+            return DEFAULT_MAX_FPS;
+        return rate;
+    }
+
+    /**
+     * Starts the scheduler. Does nothing if it is already running.
+     */
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        final int gen = ++generation;
+        future = executor.schedule(() -> frame(gen), 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the scheduler. A frame which is running completes, but no further frames are started.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * @return true if the scheduler is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the achieved frame rate in frames per second, zero if not known yet
+     */
+    public double getFps() {
+        return fps;
+    }
+
+    /**
+     * @return the number of frames dropped since the start because a frame took too long
+     */
+    public long getDroppedFrames() {
+        return dropped;
+    }
+
+    private void frame(int gen) {
+        if (!running || gen != generation)
+            return;
+
+        if (gen != measuredGeneration) {
+            // the first frame of a new chain
+            measuredGeneration = gen;
+            cost = 0;
+            interval = 0;
+            lastStart = 0;
+            fps = 0;
+        }
+
+        long start = nanoTime.getAsLong();
+        if (lastStart != 0) {
+            long i = start - lastStart;
+            interval = interval == 0 ? i : interval + (i - interval) * SMOOTHING;
+            fps = NANOS_PER_SECOND / interval;
+        }
+        lastStart = start;
+
+        try {
+            task.run();
+        } finally {
+            long c = nanoTime.getAsLong() - start;
+            cost = cost == 0 ? c : cost + (c - cost) * SMOOTHING;
+            long period = getPeriod();
+            if (c > period)
+                dropped += (c - 1) / period;
+
+            synchronized (this) {
+                if (running && gen == generation)
+                    future = executor.schedule(() -> frame(gen), Math.max(0, period - c), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the planned period in nanoseconds
+     */
+    long getPeriod() {
+        long p = (long) (cost * HEADROOM);
+        return Math.max(minPeriod, Math.min(maxPeriod, p));
+    }
+}
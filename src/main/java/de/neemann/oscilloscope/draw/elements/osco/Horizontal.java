@@ -1,6 +1,7 @@
 package de.neemann.oscilloscope.draw.elements.osco;
 
 import de.neemann.oscilloscope.draw.elements.*;
+import de.neemann.oscilloscope.gui.Observer;
 
 /**
  * The horizontal unit
@@ -56,6 +57,18 @@ public class Horizontal {
         return timeBase;
     }
 
+    /**
+     * Adds an observer which is notified if one of the horizontal settings has changed
+     *
+     * @param observer the observer
+     */
+    public void addObserver(Observer observer) {
+        pos.addObserver(observer);
+        var.addObserver(observer);
+        horiMag.addObserver(observer);
+        timeBase.addObserver(observer);
+    }
+
     /**
      * @return the pos value
      */
@@ -3,16 +3,16 @@ package de.neemann.oscilloscope.draw.elements.osco;
 import de.neemann.oscilloscope.draw.elements.Container;
 import de.neemann.oscilloscope.draw.elements.*;
 import de.neemann.oscilloscope.gui.ElementComponent;
+import de.neemann.oscilloscope.gui.Observer;
 import de.neemann.oscilloscope.gui.SaveException;
 import de.neemann.oscilloscope.signal.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static de.neemann.oscilloscope.draw.elements.Scaling.SIZE;
 import static de.neemann.oscilloscope.draw.elements.Scaling.SIZE2;
@@ -23,7 +23,8 @@ import static de.neemann.oscilloscope.draw.elements.Scaling.SIZE2;
 public class Oscilloscope extends Container<Oscilloscope> implements ElementComponent.NeedsComponent {
     private static final Logger LOGGER = LoggerFactory.getLogger(Oscilloscope.class);
     /**
-     * The screen update period
+     * The nominal screen update period.
+     * The actual period is adapted to the cost of a frame by the {@link FrameScheduler}.
      */
     public static final int TIME_DELTA_MS = 20;
     private static final ArrayList<TimeBase> TIMES = createTimes();
@@ -40,10 +41,17 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
 
     private boolean isInXY;
     private boolean useRT;
+    // the model used by the render thread, only accessed by the render thread
     private Model model;
+    private long modelVersion;
+    // the model requested by the GUI thread, applied by the render thread at the start of a frame
+    private final AtomicReference<ModelRequest> modelRequest = new AtomicReference<>(new ModelRequest(0, null));
+    private long requestedVersion;
+    private volatile ScopeSettings settings;
+    private SimulationClock clock = SimulationClock.wallClock();
     private ElementComponent elementComponent;
-    private final ScheduledThreadPoolExecutor executor;
-    private ScheduledFuture<?> timer;
+    private final FrameClock.Client frameClient;
+    private boolean registered;
 
 
     private static ArrayList<TimeBase> createTimes() {
@@ -137,43 +145,46 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
         power = new PowerSwitch();
         add(power.setPos(SIZE * 2, SIZE * 24));
 
-        executor = new ScheduledThreadPoolExecutor(1);
+        frameClient = new FrameClock.Client() {
+            @Override
+            public Rectangle drawFrame() {
+                return updateFrame();
+            }
+
+            @Override
+            public JComponent getComponent() {
+                return elementComponent;
+            }
+        };
 
         power.addObserver(() -> {
             if (power.isOn()) {
                 createNewModel();
 
-                timer = executor.scheduleAtFixedRate(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (model != null) {
-                            if (debug)
-                                System.out.print("(");
-                            long t = System.currentTimeMillis();
-                            try {
-                                model.updateBuffer(screen.getScreenBuffer());
-                            } catch (Throwable e) {
-                                SaveException.save(e);
-                                e.printStackTrace();
-                            }
-                            t = System.currentTimeMillis() - t;
-                            if (t > TIME_DELTA_MS)
-                                LOGGER.info("slow: " + t + "ms");
-                            if (debug)
-                                System.out.println(")");
-                        }
-                        elementComponent.repaint();
-                    }
-                }, TIME_DELTA_MS, TIME_DELTA_MS, TimeUnit.MILLISECONDS);
+                FrameClock.getInstance().register(frameClient);
+                registered = true;
                 LOGGER.info("timer started");
             } else {
-                model = null;
+                requestModel(null);
                 stopTimer();
-                screen.getScreenBuffer().clear();
+                // the screen buffer is only modified by the thread of the frame clock
+                FrameClock.getInstance().execute(() -> {
+                    applyModelRequest();
+                    screen.getScreenBuffer().clear();
+                    repaint(screen.publish());
+                });
             }
 
         });
 
+        settings = new ScopeSettings(this);
+        Observer settingsObserver = this::updateSettings;
+        trigger.addObserver(settingsObserver);
+        horizontal.addObserver(settingsObserver);
+        ch1.addObserver(settingsObserver);
+        ch2.addObserver(settingsObserver);
+        mode.addObserver(settingsObserver);
+
         isInXY = horizontal.isXY();
         useRT = horizontal.requiresRT();
         horizontal.getTimeBaseKnob().addObserver(() -> {
@@ -187,6 +198,24 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
         });
     }
 
+    /**
+     * Publishes a new snapshot of the settings.
+     * Called every time a knob or an input signal has changed.
+     */
+    private synchronized void updateSettings() {
+        settings = new ScopeSettings(this);
+    }
+
+    /**
+     * Returns the snapshot of the current settings.
+     * Used by the models to read all settings once per frame.
+     *
+     * @return the settings
+     */
+    public ScopeSettings getSettings() {
+        return settings;
+    }
+
     /**
      * Enables debug mode
      */
@@ -194,21 +223,106 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
         debug = !debug;
     }
 
+    /**
+     * Repaints only the changed region of the screen.
+     *
+     * @param changed the changed region, maybe null
+     */
+    private void repaint(Rectangle changed) {
+        if (changed != null)
+            elementComponent.repaint(changed);
+    }
+
     private void stopTimer() {
-        if (timer != null) {
-            timer.cancel(false);
-            timer = null;
+        if (registered) {
+            FrameClock.getInstance().unregister(frameClient);
+            registered = false;
             LOGGER.info("timer stopped");
         }
     }
 
+    /**
+     * Draws a frame. Called by the frame clock.
+     *
+     * @return the changed region of the component, maybe null
+     */
+    private Rectangle updateFrame() {
+        Model m = applyModelRequest();
+        if (m == null)
+            return null;
+
+        if (debug)
+            System.out.print("(");
+        Rectangle changed = null;
+        try {
+            m.updateBuffer(screen.getScreenBuffer());
+            changed = screen.publish();
+        } catch (Throwable e) {
+            SaveException.save(e);
+            e.printStackTrace();
+        }
+        if (debug) {
+            FrameClock fc = FrameClock.getInstance();
+            System.out.printf(") %.1f fps, %d dropped%n", fc.getFps(), fc.getDroppedFrames());
+        }
+        return changed;
+    }
+
+    /**
+     * @return the achieved frame rate in frames per second
+     */
+    public double getFps() {
+        return FrameClock.getInstance().getFps();
+    }
+
     private void createNewModel() {
         if (isInXY)
-            model = new ModelXY(this);
+            requestModel(new ModelXY(this, clock));
         else if (useRT)
-            model = new ModelTimeRT(Oscilloscope.this);
+            requestModel(new ModelTimeRT(Oscilloscope.this, clock));
         else
-            model = new ModelTimeCalc(Oscilloscope.this);
+            requestModel(new ModelTimeCalc(Oscilloscope.this, clock));
+    }
+
+    /**
+     * Requests a new model. Called by the GUI thread.
+     * The model is not used immediately. It replaces the current model
+     * at the start of the next frame drawn by the render thread. If several
+     * models are requested in between two frames, only the latest is used.
+     *
+     * @param m the new model, null if no model is to be used
+     */
+    private synchronized void requestModel(Model m) {
+        modelRequest.set(new ModelRequest(++requestedVersion, m));
+    }
+
+    /**
+     * Replaces the current model by the requested one if a new model was requested.
+     * Called by the render thread in between two frames, so the old and the new model
+     * never draw at the same time, and a frame is always drawn completely by one model.
+     * The screen buffer is not cleared, so the phosphor contents are kept.
+     *
+     * @return the model to use
+     */
+    private Model applyModelRequest() {
+        ModelRequest r = modelRequest.get();
+        if (r.version != modelVersion) {
+            model = r.model;
+            modelVersion = r.version;
+        }
+        return model;
+    }
+
+    /**
+     * Sets the clock which defines the simulation time of the frames.
+     * By default the wall clock is used.
+     *
+     * @param clock the simulation clock
+     */
+    public void setSimulationClock(SimulationClock clock) {
+        this.clock = clock;
+        if (power.isOn())
+            createNewModel();
     }
 
     /**
@@ -253,7 +367,6 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
     public void close() {
         super.close();
         stopTimer();
-        executor.shutdown();
     }
 
     /**
@@ -267,4 +380,14 @@ public class Oscilloscope extends Container<Oscilloscope> implements ElementComp
     public void setComponent(ElementComponent elementComponent) {
         this.elementComponent = elementComponent;
     }
+
+    private static final class ModelRequest {
+        private final long version;
+        private final Model model;
+
+        private ModelRequest(long version, Model model) {
+            this.version = version;
+            this.model = model;
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import de.neemann.oscilloscope.draw.elements.Mode;
+import de.neemann.oscilloscope.draw.elements.TrigMode;
+import de.neemann.oscilloscope.draw.elements.TrigSource;
+import de.neemann.oscilloscope.signal.PeriodicSignal;
+
+/**
+ * Immutable snapshot of all the settings of an oscilloscope used to draw a frame.
+ * A new snapshot is created by the GUI thread every time a knob or an input signal
+ * has changed. The models read the snapshot once per frame, so they never access
+ * the state owned by the GUI and all values are consistent during a frame.
+ */
+public final class ScopeSettings {
+    private final PeriodicSignal signal1;
+    private final PeriodicSignal signal2;
+    private final PeriodicSignal trigInSignal;
+    private final double ch1Pos;
+    private final double ch2Pos;
+    private final Mode mode;
+    private final double timePerDiv;
+    private final double horizontalPos;
+    private final TrigMode trigMode;
+    private final TrigSource trigSource;
+    private final double trigLevel;
+    private final boolean trigUp;
+
+    /**
+     * Creates a snapshot of the current settings of the given oscilloscope.
+     * Has to be called by the thread which owns the knobs.
+     *
+     * @param osco the oscilloscope
+     */
+    ScopeSettings(Oscilloscope osco) {
+        signal1 = osco.getCh1().getSignal();
+        signal2 = osco.getCh2().getSignal();
+        ch1Pos = osco.getCh1().getPos();
+        ch2Pos = osco.getCh2().getPos();
+        mode = osco.getMode().getSelected();
+
+        Horizontal horizontal = osco.getHorizontal();
+        timePerDiv = horizontal.getTimePerDiv();
+        horizontalPos = horizontal.getPos();
+
+        Trigger trigger = osco.getTrigger();
+        trigInSignal = trigger.getTrigIn().getSignalProvider().getSignal();
+        trigMode = trigger.getTrigMode();
+        trigSource = trigger.getTrigSource();
+        trigLevel = trigger.getLevel();
+        trigUp = trigger.isSlopeUp();
+    }
+
+    /**
+     * @return the output signal of channel 1
+     */
+    public PeriodicSignal getSignal1() {
+        return signal1;
+    }
+
+    /**
+     * @return the output signal of channel 2
+     */
+    public PeriodicSignal getSignal2() {
+        return signal2;
+    }
+
+    /**
+     * @return the signal at the trigger input
+     */
+    public PeriodicSignal getTrigInSignal() {
+        return trigInSignal;
+    }
+
+    /**
+     * @return the pos value of channel 1
+     */
+    public double getCh1Pos() {
+        return ch1Pos;
+    }
+
+    /**
+     * @return the pos value of channel 2
+     */
+    public double getCh2Pos() {
+        return ch2Pos;
+    }
+
+    /**
+     * @return the vertical mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return time in sec per div
+     */
+    public double getTimePerDiv() {
+        return timePerDiv;
+    }
+
+    /**
+     * @return the horizontal pos value
+     */
+    public double getHorizontalPos() {
+        return horizontalPos;
+    }
+
+    /**
+     * @return the trigger mode
+     */
+    public TrigMode getTrigMode() {
+        return trigMode;
+    }
+
+    /**
+     * @return the trigger source
+     */
+    public TrigSource getTrigSource() {
+        return trigSource;
+    }
+
+    /**
+     * @return the trigger level
+     */
+    public double getTrigLevel() {
+        return trigLevel;
+    }
+
+    /**
+     * @return true if the trigger reacts on the rising slope
+     */
+    public boolean isTrigUp() {
+        return trigUp;
+    }
+
+    /**
+     * @return true if one of the TV trigger modes is selected
+     */
+    public boolean isTrigTV() {
+        return trigMode == TrigMode.TV_H || trigMode == TrigMode.TV_V;
+    }
+}
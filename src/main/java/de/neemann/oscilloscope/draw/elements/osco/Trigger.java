@@ -1,12 +1,22 @@
 package de.neemann.oscilloscope.draw.elements.osco;
 
 import de.neemann.oscilloscope.draw.elements.*;
+import de.neemann.oscilloscope.gui.Observer;
 import de.neemann.oscilloscope.signal.PeriodicSignal;
+import de.neemann.oscilloscope.signal.primitives.Signal;
 
 /**
  * Abstraction of the trigger unit.
  */
 public class Trigger {
+    /**
+     * The trigger time is calculated with a precision of a fraction of a pixel
+     */
+    public static final int SUB_PIXEL = 16;
+    private static final int COARSE_STEPS = 256;
+    private static final int MAX_COARSE_STEPS = 4096;
+    private static final int MAX_BISECTIONS = 64;
+
     private Potentiometer trigLevel;
     private Switch<TrigMode> trigMode;
     private Switch<TrigSource> trigSource;
@@ -90,29 +100,122 @@ public class Trigger {
     }
 
     /**
-     * Calculates the trigger event of a signal
+     * @return true if the trigger reacts on the rising slope
+     */
+    public boolean isSlopeUp() {
+        return trigSlope.is(Slope.up);
+    }
+
+    /**
+     * Adds an observer which is notified if one of the trigger settings has changed
      *
-     * @param frontend     the frontend containing the signal
-     * @param timePerPixel the time used for a single pixel on the screen
-     * @param t0           the time to start the search
-     * @return the trigger event
+     * @param observer the observer
      */
-    public Trig getTriggerTime(PeriodicSignal frontend, double timePerPixel, double t0) {
-        return wasTrig(frontend, timePerPixel, t0, t0 + frontend.period());
+    public void addObserver(Observer observer) {
+        trigLevel.addObserver(observer);
+        trigMode.addObserver(observer);
+        trigSource.addObserver(observer);
+        trigSlope.addObserver(observer);
+        trigIn.getSignalProvider().addObserver(observer);
     }
 
     /**
-     * Tests if there was a trigger in between t0 and t1
+     * @return the trigger level set by the level poti
+     */
+    public double getLevel() {
+        return (trigLevel.get() - 0.5) * 16;
+    }
+
+    /**
+     * Searches the first trigger event in between t0 and t1.
+     * If the signal is a basic signal, the time of the event is calculated in
+     * closed form. Otherwise the interval is scanned with a step width of a fraction
+     * of the period of the signals fastest component.
+     * If a level crossing is bracketed, it is refined by bisection until its time is
+     * known with the given precision. At most one period of the signal is scanned,
+     * because a periodic signal has no trigger event later on if there is none in the
+     * first period. If the period is very long compared to the fastest component, the
+     * step width is increased. So the number of evaluations of the signal is bounded.
      *
-     * @param frontend     the frontend containing the signal
-     * @param timePerPixel the time used for a single pixel on the screen
-     * @param t0           the time to start the search
-     * @param t1           the time to stop the search
+     * @param signal the signal
+     * @param t0     the time to start the search
+     * @param t1     the time to stop the search
+     * @param level  the trigger level
+     * @param up     true if the rising slope is to be used
+     * @param eps    the precision of the trigger time
      * @return the trigger event
      */
-    public Trig wasTrig(PeriodicSignal frontend, double timePerPixel, double t0, double t1) {
-        double level = (trigLevel.get() - 0.5) * 16;
-        return wasTrig(frontend, timePerPixel, t0, t1, level);
+    public static Trig findTrigger(PeriodicSignal signal, double t0, double t1, double level, boolean up, double eps) {
+        if (signal instanceof Signal)
+            return crossing((Signal) signal, t0, t1, level, up);
+
+        // the step width follows the fastest component, but the number of steps is bounded
+        double period = signal.period();
+        double step = Math.max(signal.shortestPeriod() / COARSE_STEPS, period / MAX_COARSE_STEPS);
+        int steps = (int) Math.min(Math.ceil((t1 - t0) / step), Math.ceil(period / step) + 1);
+
+        double ta = t0;
+        boolean ola = signal.v(ta) > level;
+        for (int i = 1; i <= steps; i++) {
+            double tb = Math.min(t0 + i * step, t1);
+            boolean olb = signal.v(tb) > level;
+            if (ola != olb && olb == up)
+                return new Trig(refine(signal, ta, tb, level, up, eps), true);
+            ta = tb;
+            ola = olb;
+        }
+        return new Trig(t0, false);
+    }
+
+    /**
+     * Searches a trigger event in the given samples.
+     *
+     * @param samples the samples of the signal
+     * @param from    the index of the first sample to use
+     * @param to      the index of the last sample to use (exclusive)
+     * @param level   the trigger level
+     * @param up      true if the rising slope is to be used
+     * @return the index of the first sample after the trigger event or -1 if there is no event
+     */
+    public static int findTrigger(double[] samples, int from, int to, double level, boolean up) {
+        if (from >= to)
+            return -1;
+        boolean ol0 = samples[from] > level;
+        for (int i = from + 1; i < to; i++) {
+            boolean ol1 = samples[i] > level;
+            if (ol0 ^ ol1) {
+                if (ol1 == up)
+                    return i;
+            }
+            ol0 = ol1;
+        }
+        return -1;
+    }
+
+    /**
+     * Bisection of the interval [ta, tb]. At ta the signal is on the wrong side of the
+     * level, at tb it is on the side the slope asks for.
+     */
+    private static double refine(PeriodicSignal signal, double ta, double tb, double level, boolean up, double eps) {
+        int n = 0;
+        while (tb - ta > eps && n++ < MAX_BISECTIONS) {
+            double tm = (ta + tb) / 2;
+            if ((signal.v(tm) > level) == up)
+                tb = tm;
+            else
+                ta = tm;
+        }
+        return tb;
+    }
+
+    /**
+     * Creates the trigger event of a basic signal from its closed form crossing.
+     */
+    private static Trig crossing(Signal signal, double t0, double t1, double level, boolean up) {
+        double t = signal.nextCrossing(t0, level, up);
+        if (t <= t1)
+            return new Trig(t, true);
+        return new Trig(t0, false);
     }
 
     /**
@@ -123,10 +226,13 @@ public class Trigger {
      * @param t0           the time to start the search
      * @param t1           the time to stop the search
      * @param level        the trigger level
+     * @param up           true if the rising slope is to be used
      * @return the trigger event
      */
-    public Trig wasTrig(PeriodicSignal signal, double timePerPixel, double t0, double t1, double level) {
-        boolean up = trigSlope.is(Slope.up);
+    public static Trig wasTrig(PeriodicSignal signal, double timePerPixel, double t0, double t1, double level, boolean up) {
+        if (signal instanceof Signal)
+            return crossing((Signal) signal, t0, t1, level, up);
+
         double t = t0;
         boolean ol0 = signal.v(t) > level;
         while (t < t1) {
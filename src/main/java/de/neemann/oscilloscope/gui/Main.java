@@ -7,6 +7,9 @@ import de.neemann.oscilloscope.draw.graphics.GraphicMinMax;
 import de.neemann.oscilloscope.experiments.Experiment;
 import de.neemann.oscilloscope.experiments.Experiments;
 import de.neemann.oscilloscope.experiments.General;
+import de.neemann.oscilloscope.signal.ParallelRenderer;
+import de.neemann.oscilloscope.signal.Phosphor;
+import de.neemann.oscilloscope.signal.ScreenBuffer;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -96,6 +99,16 @@ public class Main extends JFrame {
             }
         }));
         view.add(createScaleMenu());
+        view.add(createPhosphorMenu());
+        JCheckBoxMenuItem accumulation = new JCheckBoxMenuItem("Accumulate Beam Energy", ScreenBuffer.isAccumulation());
+        accumulation.addActionListener(e -> ScreenBuffer.setAccumulation(accumulation.isSelected()));
+        view.add(accumulation);
+        JCheckBoxMenuItem parallel = new JCheckBoxMenuItem("Parallel Rendering", ParallelRenderer.isEnabled());
+        parallel.addActionListener(e -> ParallelRenderer.setEnabled(parallel.isSelected()));
+        view.add(parallel);
+        JCheckBoxMenuItem accelerated = new JCheckBoxMenuItem("Accelerated Presentation", ScreenBuffer.isAccelerated());
+        accelerated.addActionListener(e -> ScreenBuffer.setAccelerated(accelerated.isSelected()));
+        view.add(accelerated);
         if (Debug.isDebug())
             view.add(new JMenuItem(new AbstractAction("Info") {
                 @Override
@@ -148,6 +161,18 @@ public class Main extends JFrame {
         return menu;
     }
 
+    private JMenu createPhosphorMenu() {
+        JMenu menu = new JMenu("Phosphor");
+        ButtonGroup group = new ButtonGroup();
+        for (Phosphor p : Phosphor.values()) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(p.toString(), p == ScreenBuffer.getPhosphor());
+            item.addActionListener(e -> ScreenBuffer.setPhosphor(p));
+            group.add(item);
+            menu.add(item);
+        }
+        return menu;
+    }
+
     private File getUserFolder() {
         String f = PREFS.get("folder", null);
         if (f == null)
@@ -0,0 +1,129 @@
+package de.neemann.oscilloscope.signal;
+
+import java.util.ArrayList;
+
+/**
+ * The acquisition stage of a frame.
+ * Samples signals on the time grid t0 + i*dt of the current frame. The samples
+ * of every signal are stored in a record, so each grid point of a signal is
+ * evaluated only once, no matter whether the samples are requested by the
+ * trigger or by one of the traces.
+ */
+final class Acquisition {
+    private static final int MAX_RECORD = 1 << 14;
+
+    private final ArrayList<Record> records = new ArrayList<>();
+    private int used;
+    private double t0;
+    private double dt;
+    private double[] scratch = new double[0];
+
+    /**
+     * Starts a new frame. All samples of the previous frame are discarded.
+     *
+     * @param t0 the time of the grid index zero
+     * @param dt the time between two grid points
+     */
+    void start(double t0, double dt) {
+        this.t0 = t0;
+        this.dt = dt;
+        for (int i = 0; i < used; i++)
+            records.get(i).signal = null;
+        used = 0;
+    }
+
+    /**
+     * @return the time of the grid index zero
+     */
+    double getT0() {
+        return t0;
+    }
+
+    /**
+     * Copies the samples of the given signal to the given buffer.
+     * Only the samples which are not requested before in this frame are evaluated.
+     *
+     * @param s      the signal
+     * @param from   the grid index of the first sample
+     * @param buffer the buffer to copy the samples to
+     * @param n      the number of samples
+     */
+    void get(PeriodicSignal s, int from, double[] buffer, int n) {
+        getRecord(s).get(from, buffer, n);
+    }
+
+    private Record getRecord(PeriodicSignal s) {
+        for (int i = 0; i < used; i++) {
+            Record r = records.get(i);
+            if (r.signal == s)
+                return r;
+        }
+        if (used == records.size())
+            records.add(new Record());
+        Record r = records.get(used++);
+        r.signal = s;
+        r.lo = 0;
+        r.hi = 0;
+        return r;
+    }
+
+    private double[] getScratch(int n) {
+        if (scratch.length < n)
+            scratch = new double[n];
+        return scratch;
+    }
+
+    /**
+     * The samples of a single signal in the range [lo, hi)
+     */
+    private final class Record {
+        private PeriodicSignal signal;
+        private double[] data = new double[0];
+        private int lo;
+        private int hi;
+
+        private void get(int from, double[] buffer, int n) {
+            int to = from + n;
+            if (lo == hi || to < lo || from > hi || Math.max(hi, to) - Math.min(lo, from) > MAX_RECORD) {
+                // nothing usable in the record, start a new one
+                hi = lo;
+                ensureCapacity(n, 0);
+                sample(from, n, 0);
+                lo = from;
+                hi = to;
+            } else {
+                if (from < lo) {
+                    int grow = lo - from;
+                    ensureCapacity(hi - from, grow);
+                    sample(from, grow, 0);
+                    lo = from;
+                }
+                if (to > hi) {
+                    ensureCapacity(to - lo, 0);
+                    sample(hi, to - hi, hi - lo);
+                    hi = to;
+                }
+            }
+            System.arraycopy(data, from - lo, buffer, 0, n);
+        }
+
+        /**
+         * Makes sure the data array can hold the given number of samples.
+         * The valid samples are moved by the given shift.
+         */
+        private void ensureCapacity(int size, int shift) {
+            if (data.length < size) {
+                double[] d = new double[Math.max(size, data.length * 2)];
+                System.arraycopy(data, 0, d, shift, hi - lo);
+                data = d;
+            } else if (shift > 0)
+                System.arraycopy(data, 0, data, shift, hi - lo);
+        }
+
+        private void sample(int from, int n, int pos) {
+            double[] s = getScratch(n);
+            signal.values(t0 + from * dt, dt, s, n);
+            System.arraycopy(s, 0, data, pos, n);
+        }
+    }
+}
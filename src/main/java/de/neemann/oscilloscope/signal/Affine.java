@@ -0,0 +1,76 @@
+package de.neemann.oscilloscope.signal;
+
+/**
+ * A signal which is created by scaling and shifting an other signal:
+ * factor*s(t)+offset.
+ * This is the fallback of {@link PeriodicSignal#affine(double, double)} if a signal
+ * is not able to fold the transformation into itself.
+ */
+public final class Affine implements PeriodicSignal {
+    private final PeriodicSignal s;
+    private final double factor;
+    private final double offset;
+
+    /**
+     * Creates a new instance
+     *
+     * @param s      the signal to transform
+     * @param factor the factor
+     * @param offset the offset
+     */
+    public Affine(PeriodicSignal s, double factor, double offset) {
+        this.s = s;
+        this.factor = factor;
+        this.offset = offset;
+    }
+
+    @Override
+    public double v(double t) {
+        return s.v(t) * factor + offset;
+    }
+
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        s.values(t0, dt, buffer, n);
+        for (int i = 0; i < n; i++)
+            buffer[i] = buffer[i] * factor + offset;
+    }
+
+    @Override
+    public void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        for (int i = 0; i <= n; i++)
+            min[i] = (min[i] - offset) / factor;
+        s.envelope(t0, dt, min, max, n);
+        for (int i = 0; i < n; i++) {
+            double a = min[i] * factor + offset;
+            double b = max[i] * factor + offset;
+            min[i] = Math.min(a, b);
+            max[i] = Math.max(a, b);
+        }
+    }
+
+    @Override
+    public double period() {
+        return s.period();
+    }
+
+    @Override
+    public boolean isPeriodic() {
+        return s.isPeriodic();
+    }
+
+    @Override
+    public double shortestPeriod() {
+        return s.shortestPeriod();
+    }
+
+    @Override
+    public double mean() {
+        return s.mean() * factor + offset;
+    }
+
+    @Override
+    public PeriodicSignal affine(double f, double o) {
+        return s.affine(factor * f, offset * f + o);
+    }
+}
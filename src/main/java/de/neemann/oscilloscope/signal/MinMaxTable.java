@@ -0,0 +1,105 @@
+package de.neemann.oscilloscope.signal;
+
+/**
+ * Used to find the smallest and the largest value in a range of a table.
+ * The table is divided into blocks. The extrema of ranges of blocks are stored
+ * in a sparse table, so that the extrema of any range of blocks are found by two
+ * lookups. Only the incomplete blocks at both ends of a range are scanned.
+ */
+final class MinMaxTable {
+    private static final int BLOCK = 16;
+
+    private final double[] values;
+    private final double[][] min;
+    private final double[][] max;
+
+    /**
+     * Creates a new instance
+     *
+     * @param values the table values
+     */
+    MinMaxTable(double[] values) {
+        this.values = values;
+        int blocks = values.length / BLOCK;
+        int levels = blocks == 0 ? 0 : log2(blocks) + 1;
+        min = new double[levels][];
+        max = new double[levels][];
+        if (levels > 0) {
+            min[0] = new double[blocks];
+            max[0] = new double[blocks];
+            for (int b = 0; b < blocks; b++) {
+                double mi = values[b * BLOCK];
+                double ma = mi;
+                for (int i = b * BLOCK + 1; i < (b + 1) * BLOCK; i++) {
+                    mi = Math.min(mi, values[i]);
+                    ma = Math.max(ma, values[i]);
+                }
+                min[0][b] = mi;
+                max[0][b] = ma;
+            }
+        }
+        // min[k][b] is the minimum of the blocks b to b+2^k-1
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            int n = blocks - (1 << k) + 1;
+            min[k] = new double[n];
+            max[k] = new double[n];
+            for (int b = 0; b < n; b++) {
+                min[k][b] = Math.min(min[k - 1][b], min[k - 1][b + half]);
+                max[k][b] = Math.max(max[k - 1][b], max[k - 1][b + half]);
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest value in the given range
+     *
+     * @param from the first index
+     * @param to   the last index (inclusive)
+     * @return the smallest value
+     */
+    double min(int from, int to) {
+        int bFrom = (from + BLOCK - 1) / BLOCK;
+        int bTo = (to + 1) / BLOCK - 1;
+        double m = Double.POSITIVE_INFINITY;
+        if (bFrom > bTo) {
+            for (int i = from; i <= to; i++)
+                m = Math.min(m, values[i]);
+            return m;
+        }
+        for (int i = from; i < bFrom * BLOCK; i++)
+            m = Math.min(m, values[i]);
+        for (int i = (bTo + 1) * BLOCK; i <= to; i++)
+            m = Math.min(m, values[i]);
+        int k = log2(bTo - bFrom + 1);
+        return Math.min(m, Math.min(min[k][bFrom], min[k][bTo - (1 << k) + 1]));
+    }
+
+    /**
+     * Returns the largest value in the given range
+     *
+     * @param from the first index
+     * @param to   the last index (inclusive)
+     * @return the largest value
+     */
+    double max(int from, int to) {
+        int bFrom = (from + BLOCK - 1) / BLOCK;
+        int bTo = (to + 1) / BLOCK - 1;
+        double m = Double.NEGATIVE_INFINITY;
+        if (bFrom > bTo) {
+            for (int i = from; i <= to; i++)
+                m = Math.max(m, values[i]);
+            return m;
+        }
+        for (int i = from; i < bFrom * BLOCK; i++)
+            m = Math.max(m, values[i]);
+        for (int i = (bTo + 1) * BLOCK; i <= to; i++)
+            m = Math.max(m, values[i]);
+        int k = log2(bTo - bFrom + 1);
+        return Math.max(m, Math.max(max[k][bFrom], max[k][bTo - (1 << k) + 1]));
+    }
+
+    private static int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(n);
+    }
+}
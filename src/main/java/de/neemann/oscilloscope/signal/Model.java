@@ -6,7 +6,9 @@ package de.neemann.oscilloscope.signal;
 public interface Model {
     /**
      * Draws the trace to the screen buffer.
-     * Is called with a period declared at {@link de.neemann.oscilloscope.draw.elements.osco.Oscilloscope#TIME_DELTA_MS}.
+     * Is called by the {@link de.neemann.oscilloscope.draw.elements.osco.FrameScheduler} with a period
+     * adapted to the cost of a frame. The nominal period is declared at
+     * {@link de.neemann.oscilloscope.draw.elements.osco.Oscilloscope#TIME_DELTA_MS}.
      *
      * @param buffer the screen buffer
      */
@@ -1,12 +1,11 @@
 package de.neemann.oscilloscope.signal;
 
 import de.neemann.oscilloscope.draw.elements.Mode;
-import de.neemann.oscilloscope.draw.elements.Switch;
 import de.neemann.oscilloscope.draw.elements.TrigMode;
-import de.neemann.oscilloscope.draw.elements.osco.Channel;
-import de.neemann.oscilloscope.draw.elements.osco.Horizontal;
 import de.neemann.oscilloscope.draw.elements.osco.Oscilloscope;
+import de.neemann.oscilloscope.draw.elements.osco.ScopeSettings;
 import de.neemann.oscilloscope.draw.elements.osco.Trigger;
+import de.neemann.oscilloscope.signal.primitives.Signal;
 import de.neemann.oscilloscope.signal.primitives.Sum;
 
 /**
@@ -16,103 +15,340 @@ import de.neemann.oscilloscope.signal.primitives.Sum;
  * and drawn independent of real time.
  */
 public class ModelTimeCalc implements Model {
-    private final Horizontal horizontal;
-    private final Trigger trigger;
-    private final Switch<Mode> mode;
-    private final long timeOffset;
-    private final SignalProvider triggerInProvider;
-    private final Channel channel1;
-    private final Channel channel2;
+    private static final int TRIGGER_BLOCK = 256;
+    private static final int MAX_RECORD_SCREENS = 4;
+    private static final double PHASE_TOLERANCE = 0.5;
+
+    private final Oscilloscope osco;
+    private final SimulationClock clock;
+    private final Acquisition acquisition = new Acquisition();
+    private double[] buffer1;
+    private double[] buffer2;
+    private double[] envelope1;
+    private double[] envelope2;
+    private double[] vertexTime;
+    private double[] vertexValue;
+    private double[] triggerBlock;
+    private int triggerIndex;
+    private PeriodicSignal lastFrontend1;
+    private PeriodicSignal lastFrontend2;
+    private ValueToScreen screen1;
+    private ValueToScreen screen2;
+    private ValueToScreen screenSum;
+
+    // describes the picture which is shown in the screen buffer
+    private ScreenBuffer drawnBuffer;
+    private Mode drawnMode;
+    private ValueToScreen drawnScreen1;
+    private ValueToScreen drawnScreen2;
+    private ValueToScreen drawnScreenSum;
+    private double drawnTimePerPixel;
+    private boolean drawnShow;
+    private double drawnStart;
+    private boolean drawnAccumulation;
 
     /**
      * Used to simulate the scope in normal mode
      *
-     * @param osco the oscilloscope
+     * @param osco  the oscilloscope
+     * @param clock the simulation clock
      */
-    public ModelTimeCalc(Oscilloscope osco) {
+    public ModelTimeCalc(Oscilloscope osco, SimulationClock clock) {
         if (osco.getHorizontal().isXY())
             throw new RuntimeException("wrong model");
 
-        channel1 = osco.getCh1();
-        channel2 = osco.getCh2();
-        this.horizontal = osco.getHorizontal();
-        this.triggerInProvider = osco.getTrigger().getTrigIn().getSignalProvider();
-        this.trigger = osco.getTrigger();
-        this.mode = osco.getMode();
-        timeOffset = System.currentTimeMillis();
+        this.osco = osco;
+        this.clock = clock;
     }
 
     @Override
     public void updateBuffer(ScreenBuffer screenBuffer) {
-        PeriodicSignal frontend1 = channel1.getSignal();
-        PeriodicSignal frontend2 = channel2.getSignal();
-        PeriodicSignal triggerIn = triggerInProvider.getSignal();
+        ScopeSettings settings = osco.getSettings();
+        PeriodicSignal frontend1 = settings.getSignal1();
+        PeriodicSignal frontend2 = settings.getSignal2();
+        PeriodicSignal triggerIn = settings.getTrigInSignal();
 
         int width = screenBuffer.getWidth();
         int height = screenBuffer.getHeight();
-        ValueToScreen screen1 = new ValueToScreen(frontend1, channel1.getPos(), 8, height);
-        ValueToScreen screen2 = new ValueToScreen(frontend2, channel2.getPos(), 8, height);
-        ValueToScreen screenSum = new ValueToScreen(new Sum(frontend1, frontend2), channel1.getPos(), 8, height);
+        if (frontend1 != lastFrontend1 || frontend2 != lastFrontend2) {
+            // the channels create a new signal every time a knob has changed
+            screen1 = new ValueToScreen(frontend1, settings.getCh1Pos(), 8, height);
+            screen2 = new ValueToScreen(frontend2, settings.getCh2Pos(), 8, height);
+            screenSum = new ValueToScreen(new Sum(frontend1, frontend2), settings.getCh1Pos(), 8, height);
+            lastFrontend1 = frontend1;
+            lastFrontend2 = frontend2;
+        }
 
-        double timePerPixel = horizontal.getTimePerDiv() * 10 / width;
-        double t0 = (System.currentTimeMillis() - timeOffset) / 1000.0;
+        double timePerPixel = settings.getTimePerDiv() * 10 / width;
+        double t0 = clock.nextFrameSeconds();
 
-        if (trigger.getTrigMode() == TrigMode.TV_H || trigger.getTrigMode() == TrigMode.TV_V)
+        if (settings.isTrigTV())
             return;
 
-        Trigger.Trig trig = null;
-        switch (trigger.getTrigSource()) {
+        // The trigger search starts at grid index 'width'. So there are always
+        // enough samples available in front of the trigger event to show the
+        // pre trigger part of the trace.
+        acquisition.start(t0, timePerPixel);
+        int shift = (int) Math.round(settings.getHorizontalPos() * width);
+        int start = width - shift;
+        boolean found = false;
+        boolean up = settings.isTrigUp();
+        switch (settings.getTrigSource()) {
             case Ch_1:
-                trig = trigger.getTriggerTime(frontend1, timePerPixel, t0);
+                found = searchTrigger(frontend1, settings.getTrigLevel(), up, width, shift, timePerPixel);
                 break;
             case Ch_2:
-                trig = trigger.getTriggerTime(frontend2, timePerPixel, t0);
+                found = searchTrigger(frontend2, settings.getTrigLevel(), up, width, shift, timePerPixel);
                 break;
             case EXT:
-                trig = trigger.wasTrig(triggerIn, timePerPixel, t0, t0 + triggerIn.period(), triggerIn.mean());
+                found = searchTrigger(triggerIn, triggerIn.mean(), up, width, shift, timePerPixel);
                 break;
             case LINE:
-                trig = new Trigger.Trig(((long) (t0 / 0.02) + 1) * 0.02, true);
+                double lineTrig = ((long) (t0 / 0.02) + 1) * 0.02;
+                acquisition.start(lineTrig - shift * timePerPixel, timePerPixel);
+                triggerIndex = shift;
+                found = true;
+                break;
         }
+        if (found)
+            start = triggerIndex - shift;
 
-        double triggerTime = t0;
-        if (trig != null)
-            triggerTime = trig.getT() - horizontal.getPos() * timePerPixel * width;
+        boolean show = found || settings.getTrigMode() == TrigMode.AUTO;
+        Mode m = settings.getMode();
+        double tStart = acquisition.getT0() + start * timePerPixel;
+        boolean accumulation = ScreenBuffer.isAccumulation();
+        if (isShown(screenBuffer, m, show, tStart, timePerPixel, accumulation))
+            return;
 
-        boolean show = true;
-        if (trig != null)
-            show = trig.isFound() || trigger.getTrigMode() == TrigMode.AUTO;
+        drawnBuffer = screenBuffer;
+        drawnMode = m;
+        drawnScreen1 = screen1;
+        drawnScreen2 = screen2;
+        drawnScreenSum = screenSum;
+        drawnTimePerPixel = timePerPixel;
+        drawnShow = show;
+        drawnStart = tStart;
+        drawnAccumulation = accumulation;
 
         screenBuffer.clear();
         if (show) {
-            switch (mode.getSelected()) {
+            int n = width + 1;
+            buffer1 = ensureSize(buffer1, n);
+            buffer2 = ensureSize(buffer2, n);
+            switch (m) {
                 case Ch_1:
-                    drawTrace(screenBuffer, screen1, width, timePerPixel, triggerTime);
+                    drawChannel(screenBuffer, frontend1, screen1, buffer1, start, width, timePerPixel);
                     break;
                 case Ch_2:
-                    drawTrace(screenBuffer, screen2, width, timePerPixel, triggerTime);
+                    drawChannel(screenBuffer, frontend2, screen2, buffer2, start, width, timePerPixel);
                     break;
                 case DUAL:
-                    drawTrace(screenBuffer, screen1, width, timePerPixel, triggerTime);
-                    drawTrace(screenBuffer, screen2, width, timePerPixel, triggerTime);
+                    drawChannel(screenBuffer, frontend1, screen1, buffer1, start, width, timePerPixel);
+                    drawChannel(screenBuffer, frontend2, screen2, buffer2, start, width, timePerPixel);
                     break;
                 case ADD:
-                    drawTrace(screenBuffer, screenSum, width, timePerPixel, triggerTime);
+                    // the envelope of the sum is bounded by the sum of the envelopes of the channels
+                    envelope1 = ensureSize(envelope1, width);
+                    envelope2 = ensureSize(envelope2, width);
+                    acquisition.get(frontend1, start, buffer1, n);
+                    acquisition.get(frontend2, start, buffer2, n);
+                    frontend1.envelope(tStart, timePerPixel, buffer1, envelope1, width);
+                    frontend2.envelope(tStart, timePerPixel, buffer2, envelope2, width);
+                    for (int i = 0; i < width; i++) {
+                        buffer1[i] += buffer2[i];
+                        envelope1[i] += envelope2[i];
+                    }
+                    drawTrace(screenBuffer, screenSum, buffer1, envelope1, width, timePerPixel);
             }
         }
     }
 
-    private void drawTrace(ScreenBuffer g, PeriodicSignal screen, int width, double timePerPixel, double t) {
-        // to avoid a beat (german Schwebung) don't plot anything if frequency is extremely
-        // high compared to screen width. In this case: if a full wave length is less then 2 pixels wide.
-        if (screen.period() > timePerPixel * 2) {
-            int y0 = (int) screen.v(t);
-            for (int x = 0; x < width; x++) {
-                t += timePerPixel;
-                int y1 = (int) screen.v(t);
-                g.drawTrace(x - 1, y0, x, y1);
-                y0 = y1;
+    /**
+     * Searches the trigger event of the given signal.
+     * The search covers a full period of the signal. If the period fits into
+     * the acquisition record, the search is done in the record, so that the
+     * samples can be reused by the traces. If the signal is a basic signal or
+     * if its period is very long compared to the screen, the trigger engine is
+     * used, which calculates basic signals in closed form and needs only a bounded
+     * number of evaluations otherwise. In this case a new grid is started at the
+     * trigger time, so the trigger event is exactly at a grid point.
+     * If a trigger event is found, its grid index is stored in triggerIndex.
+     *
+     * @param s            the signal
+     * @param level        the trigger level
+     * @param up           true if the rising slope is to be used
+     * @param from         the grid index to start the search at
+     * @param shift        the number of pixels shown in front of the trigger event
+     * @param timePerPixel the time between two grid points
+     * @return true if a trigger event was found
+     */
+    private boolean searchTrigger(PeriodicSignal s, double level, boolean up, int from, int shift, double timePerPixel) {
+        double searchLength = Math.ceil(s.period() / timePerPixel);
+        if (s instanceof Signal || searchLength > from * MAX_RECORD_SCREENS) {
+            double t = acquisition.getT0() + from * timePerPixel;
+            Trigger.Trig trig = Trigger.findTrigger(s, t, t + s.period(), level, up, timePerPixel / Trigger.SUB_PIXEL);
+            if (trig.isFound()) {
+                acquisition.start(trig.getT() - shift * timePerPixel, timePerPixel);
+                triggerIndex = shift;
+                return true;
+            }
+            return false;
+        }
+
+        triggerBlock = ensureSize(triggerBlock, TRIGGER_BLOCK + 1);
+        int i = from;
+        int end = from + (int) searchLength;
+        while (i < end) {
+            int len = Math.min(TRIGGER_BLOCK, end - i);
+            // the last sample of the previous block is included to find events at the block border
+            acquisition.get(s, i - 1, triggerBlock, len + 1);
+            int k = Trigger.findTrigger(triggerBlock, 0, len + 1, level, up);
+            if (k >= 0) {
+                triggerIndex = i - 1 + k;
+                return true;
             }
+            i += len;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the screen buffer already shows the picture of this frame.
+     * This is the case if the settings are unchanged and the displayed signals
+     * are in the same phase as in the frame drawn last. The screen buffer stores
+     * energies in the accumulation mode and intensities otherwise, so the picture
+     * has to be drawn again if the mode has changed.
+     */
+    private boolean isShown(ScreenBuffer screenBuffer, Mode m, boolean show, double tStart, double timePerPixel,
+                            boolean accumulation) {
+        if (screenBuffer != drawnBuffer || m != drawnMode || show != drawnShow || accumulation != drawnAccumulation
+                || screen1 != drawnScreen1 || screen2 != drawnScreen2 || screenSum != drawnScreenSum
+                || timePerPixel != drawnTimePerPixel)
+            return false;
+
+        if (!show)
+            return true;
+
+        double dt = tStart - drawnStart;
+        switch (m) {
+            case Ch_1:
+                return isSamePhase(dt, screen1, timePerPixel);
+            case Ch_2:
+                return isSamePhase(dt, screen2, timePerPixel);
+            case DUAL:
+                return isSamePhase(dt, screen1, timePerPixel) && isSamePhase(dt, screen2, timePerPixel);
+            default:
+                return isSamePhase(dt, screenSum, timePerPixel);
+        }
+    }
+
+    private static boolean isSamePhase(double dt, PeriodicSignal s, double timePerPixel) {
+        if (!s.isPeriodic())
+            return false;
+        double period = s.period();
+        double r = dt - Math.rint(dt / period) * period;
+        return Math.abs(r) <= timePerPixel * PHASE_TOLERANCE;
+    }
+
+    private static double[] ensureSize(double[] buffer, int n) {
+        if (buffer == null || buffer.length < n)
+            return new double[n];
+        return buffer;
+    }
+
+    /**
+     * Draws the trace of a single channel. Piecewise linear signals are drawn
+     * by their vertices, all other signals by their envelope.
+     * The trace starts at the grid index start of the acquisition.
+     */
+    private void drawChannel(ScreenBuffer g, PeriodicSignal frontend, ValueToScreen screen, double[] buffer,
+                             int start, int width, double timePerPixel) {
+        double tStart = acquisition.getT0() + start * timePerPixel;
+        if (!drawVertices(g, screen, tStart, width, timePerPixel)) {
+            envelope1 = ensureSize(envelope1, width);
+            acquisition.get(frontend, start, buffer, width + 1);
+            frontend.envelope(tStart, timePerPixel, buffer, envelope1, width);
+            drawTrace(g, screen, buffer, envelope1, width, timePerPixel);
+        }
+    }
+
+    /**
+     * Draws the trace as line segments in between the vertices of the signal.
+     * Returns false if the signal is not piecewise linear or if it has more
+     * vertices than the screen has columns. In this case nothing is drawn.
+     */
+    private boolean drawVertices(ScreenBuffer g, ValueToScreen screen, double tStart, int width, double timePerPixel) {
+        vertexTime = ensureSize(vertexTime, width + 2);
+        vertexValue = ensureSize(vertexValue, width + 2);
+        int n = screen.vertices(tStart, tStart + width * timePerPixel, vertexTime, vertexValue);
+        if (n < 0)
+            return false;
+
+        int height = g.getHeight();
+        double x0 = 0;
+        double y0 = vertexValue[0];
+        for (int i = 1; i < n; i++) {
+            double x1 = (vertexTime[i] - tStart) / timePerPixel;
+            double y1 = vertexValue[i];
+            drawSegment(g, x0, y0, x1, y1, height);
+            x0 = x1;
+            y0 = y1;
+        }
+        return true;
+    }
+
+    /**
+     * Draws a line segment. The color depends on the slope of the segment, so it is
+     * the same as if the segment was drawn pixel by pixel.
+     * The segment is clipped to the height of the screen, so that its coordinates fit
+     * into an int.
+     */
+    private static void drawSegment(ScreenBuffer g, double x0, double y0, double x1, double y1, int height) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double distSqr = dx > 0 ? 1 + (dy / dx) * (dy / dx) : Integer.MAX_VALUE;
+
+        double lo = -1;
+        double hi = height + 1;
+        if (dy != 0) {
+            double ta = (lo - y0) / dy;
+            double tb = (hi - y0) / dy;
+            double tMin = Math.max(0, Math.min(ta, tb));
+            double tMax = Math.min(1, Math.max(ta, tb));
+            if (tMin > tMax)
+                return;
+            double cx0 = x0 + dx * tMin;
+            double cy0 = y0 + dy * tMin;
+            x1 = x0 + dx * tMax;
+            y1 = y0 + dy * tMax;
+            x0 = cx0;
+            y0 = cy0;
+        } else if (y0 < lo || y0 > hi)
+            return;
+
+        g.drawTrace((int) Math.round(x0), (int) y0, (int) Math.round(x1), (int) y1,
+                (int) Math.min(distSqr, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Draws the envelope of the signal in every column of the screen as a
+     * vertical span, like the peak detect mode of a digital scope does.
+     * So a signal which is fast compared to the time per pixel shows up as
+     * a band instead of an aliased trace.
+     * The envelope is given in signal units and is transformed to screen
+     * coordinates in place.
+     */
+    private void drawTrace(ScreenBuffer g, ValueToScreen screen, double[] min, double[] max, int width, double timePerPixel) {
+        screen.map(min, width);
+        screen.map(max, width);
+
+        // the beam passes a column several times if the signal is fast
+        double passes = Math.max(1, 2 * timePerPixel / screen.shortestPeriod());
+        for (int x = 0; x < width; x++) {
+            int y0 = (int) min[x];
+            int y1 = (int) max[x];
+            double dist = (y1 - y0) * passes;
+            g.drawTrace(x, y0, x, y1, (int) Math.min(1 + dist * dist, Integer.MAX_VALUE));
         }
     }
 }
@@ -1,11 +1,8 @@
 package de.neemann.oscilloscope.signal;
 
-import de.neemann.oscilloscope.draw.elements.Mode;
-import de.neemann.oscilloscope.draw.elements.Switch;
 import de.neemann.oscilloscope.draw.elements.TrigMode;
-import de.neemann.oscilloscope.draw.elements.osco.Channel;
-import de.neemann.oscilloscope.draw.elements.osco.Horizontal;
 import de.neemann.oscilloscope.draw.elements.osco.Oscilloscope;
+import de.neemann.oscilloscope.draw.elements.osco.ScopeSettings;
 import de.neemann.oscilloscope.draw.elements.osco.Trigger;
 import de.neemann.oscilloscope.signal.primitives.Sum;
 
@@ -15,68 +12,76 @@ import de.neemann.oscilloscope.signal.primitives.Sum;
  * Drawing has to consider real time.
  */
 public class ModelTimeRT implements Model {
-    private final Horizontal horizontal;
-    private final Trigger trigger;
-    private final Switch<Mode> mode;
-    private final long timeOffset;
-    private final SignalProvider triggerInProvider;
-    private final Channel channel1;
-    private final Channel channel2;
+    private final Oscilloscope osco;
+    private final SimulationClock clock;
     private boolean isRunning = false;
     private double tStart;
     private double tLast;
+    private double[] buffer;
+    private PeriodicSignal lastFrontend1;
+    private PeriodicSignal lastFrontend2;
+    private ValueToScreen screen1;
+    private ValueToScreen screen2;
+    private ValueToScreen screenSum;
 
     /**
      * Used to simulate the scope in normal mode
      *
-     * @param osco the oscilloscope
+     * @param osco  the oscilloscope
+     * @param clock the simulation clock
      */
-    public ModelTimeRT(Oscilloscope osco) {
+    public ModelTimeRT(Oscilloscope osco, SimulationClock clock) {
         if (osco.getHorizontal().isXY())
             throw new RuntimeException("wrong model");
 
-        channel1 = osco.getCh1();
-        channel2 = osco.getCh2();
-        this.triggerInProvider = osco.getTrigger().getTrigIn().getSignalProvider();
-        this.horizontal = osco.getHorizontal();
-        this.trigger = osco.getTrigger();
-        this.mode = osco.getMode();
-        timeOffset = System.currentTimeMillis();
+        this.osco = osco;
+        this.clock = clock;
+        tLast = Double.NaN;
     }
 
     @Override
     public void updateBuffer(ScreenBuffer screenBuffer) {
-        PeriodicSignal frontend1 = channel1.getSignal();
-        PeriodicSignal frontend2 = channel2.getSignal();
-        PeriodicSignal triggerIn = triggerInProvider.getSignal();
+        ScopeSettings settings = osco.getSettings();
+        PeriodicSignal frontend1 = settings.getSignal1();
+        PeriodicSignal frontend2 = settings.getSignal2();
+        PeriodicSignal triggerIn = settings.getTrigInSignal();
 
         int width = screenBuffer.getWidth();
         int height = screenBuffer.getHeight();
-        ValueToScreen screen1 = new ValueToScreen(frontend1, channel1.getPos(), 8, height);
-        ValueToScreen screen2 = new ValueToScreen(frontend2, channel2.getPos(), 8, height);
-        ValueToScreen screenSum = new ValueToScreen(new Sum(frontend1, frontend2), channel1.getPos(), 8, height);
+        if (frontend1 != lastFrontend1 || frontend2 != lastFrontend2) {
+            // the channels create a new signal every time a knob has changed
+            screen1 = new ValueToScreen(frontend1, settings.getCh1Pos(), 8, height);
+            screen2 = new ValueToScreen(frontend2, settings.getCh2Pos(), 8, height);
+            screenSum = new ValueToScreen(new Sum(frontend1, frontend2), settings.getCh1Pos(), 8, height);
+            lastFrontend1 = frontend1;
+            lastFrontend2 = frontend2;
+        }
 
-        double timePerPixel = horizontal.getTimePerDiv() * 10 / width;
-        double tNow = (System.currentTimeMillis() - timeOffset) / 1000.0;
+        double timePerPixel = settings.getTimePerDiv() * 10 / width;
+        double tNow = clock.nextFrameSeconds();
+        if (Double.isNaN(tLast))
+            // the first frame only defines the start time
+            tLast = tNow;
 
         screenBuffer.darken();
 
-        if (trigger.getTrigMode() == TrigMode.TV_H || trigger.getTrigMode() == TrigMode.TV_V) {
+        if (settings.isTrigTV()) {
             tLast = tNow;
             return;
         }
 
         if (!isRunning) {
             Trigger.Trig trig = null;
-            switch (trigger.getTrigSource()) {
+            boolean up = settings.isTrigUp();
+            switch (settings.getTrigSource()) {
                 case Ch_1:
-                    trig = trigger.wasTrig(frontend1, timePerPixel, tLast, tNow);
+                    trig = Trigger.wasTrig(frontend1, timePerPixel, tLast, tNow, settings.getTrigLevel(), up);
                     break;
                 case Ch_2:
-                    trig = trigger.wasTrig(frontend2, timePerPixel, tLast, tNow);
+                    trig = Trigger.wasTrig(frontend2, timePerPixel, tLast, tNow, settings.getTrigLevel(), up);
                     break;
                 case EXT:
-                    trig = trigger.wasTrig(triggerIn, timePerPixel, tLast, tNow, triggerIn.mean());
+                    trig = Trigger.wasTrig(triggerIn, timePerPixel, tLast, tNow, triggerIn.mean(), up);
                     break;
                 case LINE:
                     double nextTrig = ((long) (tLast / 0.02) + 1) * 0.02;
@@ -87,7 +92,7 @@ public class ModelTimeRT implements Model {
                 tStart = trig.getT();
                 tLast = tStart;
                 isRunning = true;
-            } else if (trigger.getTrigMode() == TrigMode.AUTO) {
+            } else if (settings.getTrigMode() == TrigMode.AUTO) {
                 tStart = tNow;
                 tLast = tNow;
                 isRunning = true;
@@ -96,7 +101,7 @@ public class ModelTimeRT implements Model {
 
         if (isRunning) {
             screenBuffer.darken();
-            switch (mode.getSelected()) {
+            switch (settings.getMode()) {
                 case Ch_1:
                     drawTrace(screenBuffer, screen1, tStart, tLast, tNow, timePerPixel);
                     break;
@@ -117,25 +122,32 @@ public class ModelTimeRT implements Model {
             isRunning = false;
     }
 
-    private void drawTrace(ScreenBuffer buffer, PeriodicSignal screen, double t0, double t1, double t2, double timePerPixel) {
-        int y0 = (int) screen.v(t1);
-        int x1 = (int) ((t1 - t0) / timePerPixel);
-        int x0 = x1;
+    private void drawTrace(ScreenBuffer screenBuffer, PeriodicSignal screen, double t0, double t1, double t2, double timePerPixel) {
+        if (t1 >= t2)
+            return;
 
         double deltaTime = timePerPixel;
         double pixels = (t2 - t1) / deltaTime;
         if (pixels < 20)
             deltaTime = (t2 - t1) / 20;
 
-        while (t1 < t2) {
-            int ym = (int) screen.v(t1 + deltaTime / 2);
-            t1 += deltaTime;
-            x1 = (int) ((t1 - t0) / timePerPixel);
-            int y1 = (int) screen.v(t1);
+        // every step needs the value at its end and in its middle
+        int steps = (int) Math.ceil((t2 - t1) / deltaTime);
+        int n = steps * 2 + 1;
+        if (buffer == null || buffer.length < n)
+            buffer = new double[n];
+        screen.values(t1, deltaTime / 2, buffer, n);
+
+        int y0 = (int) buffer[0];
+        int x0 = (int) ((t1 - t0) / timePerPixel);
+        for (int i = 1; i <= steps; i++) {
+            int ym = (int) buffer[i * 2 - 1];
+            int x1 = (int) ((t1 + i * deltaTime - t0) / timePerPixel);
+            int y1 = (int) buffer[i * 2];
             if (ym == y1 || ym == y0)
-                buffer.drawTrace(x0, y0, x1, y1);
+                screenBuffer.drawTrace(x0, y0, x1, y1);
             else
-                buffer.drawBrightTrace(x0, y0, x1, y1);
+                screenBuffer.drawBrightTrace(x0, y0, x1, y1);
             y0 = y1;
             x0 = x1;
         }
@@ -1,8 +1,7 @@
 package de.neemann.oscilloscope.signal;
 
-import de.neemann.oscilloscope.draw.elements.Potentiometer;
-import de.neemann.oscilloscope.draw.elements.osco.Channel;
 import de.neemann.oscilloscope.draw.elements.osco.Oscilloscope;
+import de.neemann.oscilloscope.draw.elements.osco.ScopeSettings;
 
 /**
  * The simulation used for x-y mode
@@ -10,49 +9,58 @@ import de.neemann.oscilloscope.draw.elements.osco.Oscilloscope;
 public class ModelXY implements Model {
     private static final int MAX_LOOP = 10000;
 
-    private final long timeOffset;
-    private final Channel channel1;
-    private final Channel channel2;
-    private final Potentiometer xPotentiometer;
+    private final SimulationClock clock;
+    private final Oscilloscope osco;
+    private final ParallelRenderer renderer = new ParallelRenderer();
     private double lastTime;
     private int lastxPos;
     private int lastyPos;
+    private double[] xBuffer;
+    private double[] yBuffer;
+    private PeriodicSignal lastXFrontend;
+    private PeriodicSignal lastYFrontend;
+    private double lastHorizontalPos;
+    private ValueToScreen xScreen;
+    private ValueToScreen yScreen;
 
     /**
      * Creates a new model for x-y mode
      *
-     * @param osco the used oscilloscope
+     * @param osco  the used oscilloscope
+     * @param clock the simulation clock
      */
-    public ModelXY(Oscilloscope osco) {
+    public ModelXY(Oscilloscope osco, SimulationClock clock) {
         if (!osco.getHorizontal().isXY())
             throw new RuntimeException("wrong model");
 
-        channel1 = osco.getCh1();
-        channel2 = osco.getCh2();
-
-        xPotentiometer = osco.getHorizontal().getPosPoti();
-
-        timeOffset = System.currentTimeMillis();
-        lastTime = getTimeInMillis() / 1000.0;
-    }
-
-    private long getTimeInMillis() {
-        return System.currentTimeMillis() - timeOffset;
+        this.osco = osco;
+        this.clock = clock;
+        lastTime = Double.NaN;
     }
 
     @Override
     public void updateBuffer(ScreenBuffer screenBuffer) {
-        PeriodicSignal xFrontend = channel1.getSignal();
-        PeriodicSignal yFrontend = channel2.getSignal();
+        ScopeSettings settings = osco.getSettings();
+        PeriodicSignal xFrontend = settings.getSignal1();
+        PeriodicSignal yFrontend = settings.getSignal2();
 
         int width = screenBuffer.getWidth();
         int height = screenBuffer.getHeight();
-        ValueToScreen xScreen = new ValueToScreen(xFrontend, xPotentiometer.get(), 10, width);
-        ValueToScreen yScreen = new ValueToScreen(yFrontend, channel2.getPos(), 8, height);
+        double horizontalPos = settings.getHorizontalPos();
+        if (xFrontend != lastXFrontend || horizontalPos != lastHorizontalPos)
+            xScreen = new ValueToScreen(xFrontend, horizontalPos, 10, width);
+        if (yFrontend != lastYFrontend)
+            yScreen = new ValueToScreen(yFrontend, settings.getCh2Pos(), 8, height);
+        lastXFrontend = xFrontend;
+        lastYFrontend = yFrontend;
+        lastHorizontalPos = horizontalPos;
 
-        double time = getTimeInMillis() / 1000.0;
+        double time = clock.nextFrameSeconds();
+        if (Double.isNaN(lastTime))
+            // the first frame only defines the start time
+            lastTime = time;
 
-        double period = Math.max(xFrontend.period(), yFrontend.period());
+        double period = Math.max(xFrontend.shortestPeriod(), yFrontend.shortestPeriod());
 
         double timeDelta = period / 1000;
         if (timeDelta > 0.0001)
@@ -62,13 +70,33 @@ public class ModelXY implements Model {
             timeDelta = (time - lastTime) / MAX_LOOP;
 
         screenBuffer.darken();
-        while (lastTime < time) {
-            lastTime += timeDelta;
-            int xPos = (int) xScreen.v(lastTime);
-            int yPos = (int) yScreen.v(lastTime);
-            screenBuffer.drawTrace(lastxPos, lastyPos, xPos, yPos);
-            lastxPos = xPos;
-            lastyPos = yPos;
+        if (lastTime < time) {
+            int steps = (int) Math.ceil((time - lastTime) / timeDelta);
+            if (xBuffer == null || xBuffer.length < steps) {
+                xBuffer = new double[steps];
+                yBuffer = new double[steps];
+            }
+            xScreen.values(lastTime + timeDelta, timeDelta, xBuffer, steps);
+            yScreen.values(lastTime + timeDelta, timeDelta, yBuffer, steps);
+            lastTime += steps * timeDelta;
+
+            final double[] xb = xBuffer;
+            final double[] yb = yBuffer;
+            final int x0 = lastxPos;
+            final int y0 = lastyPos;
+            renderer.render(screenBuffer, steps, (g, from, to) -> {
+                int lx = from == 0 ? x0 : (int) xb[from - 1];
+                int ly = from == 0 ? y0 : (int) yb[from - 1];
+                for (int i = from; i < to; i++) {
+                    int xPos = (int) xb[i];
+                    int yPos = (int) yb[i];
+                    g.drawTrace(lx, ly, xPos, yPos);
+                    lx = xPos;
+                    ly = yPos;
+                }
+            });
+            lastxPos = (int) xBuffer[steps - 1];
+            lastyPos = (int) yBuffer[steps - 1];
         }
     }
 }
@@ -0,0 +1,99 @@
+package de.neemann.oscilloscope.signal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Draws a trace which consists of many segments in parallel.
+ * The segments are divided into chunks. Every chunk is drawn to its own tile by
+ * a task of the common {@link ForkJoinPool}. So the tasks don't share any state.
+ * Afterwards the tiles are merged into the screen buffer. Because the brightest
+ * hit of a pixel wins, the result is the same as if all segments were drawn in sequence.
+ * If there are only a few segments or the parallel mode is disabled, the segments
+ * are drawn directly to the screen buffer.
+ * Used by the XY mode, which draws many short segments per frame. A trace in time
+ * mode has at most one segment per screen column, which is too few to be split.
+ */
+public final class ParallelRenderer {
+    /**
+     * The minimal number of segments drawn by a single task
+     */
+    private static final int MIN_CHUNK = 512;
+
+    private static volatile boolean enabled;
+
+    private ScreenBuffer[] tiles = new ScreenBuffer[0];
+
+    /**
+     * Paints a range of segments
+     */
+    interface Painter {
+        /**
+         * Paints the segments from to to-1
+         *
+         * @param g    the buffer to paint to
+         * @param from the first segment
+         * @param to   the last segment (exclusive)
+         */
+        void paint(ScreenBuffer g, int from, int to);
+    }
+
+    /**
+     * Enables or disables the parallel rendering
+     *
+     * @param enabled true if traces are to be drawn in parallel
+     */
+    public static void setEnabled(boolean enabled) {
+        ParallelRenderer.enabled = enabled;
+    }
+
+    /**
+     * @return true if the parallel rendering is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Draws the given number of segments
+     *
+     * @param g       the screen buffer
+     * @param count   the number of segments
+     * @param painter paints the segments
+     */
+    void render(ScreenBuffer g, int count, Painter painter) {
+        int chunks = enabled ? Math.min(ForkJoinPool.getCommonPoolParallelism() + 1, count / MIN_CHUNK) : 1;
+        if (chunks < 2) {
+            painter.paint(g, 0, count);
+            return;
+        }
+
+        ensureTiles(g, chunks);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+        for (int c = 1; c < chunks; c++) {
+            final ScreenBuffer tile = tiles[c];
+            final int from = (int) ((long) count * c / chunks);
+            final int to = (int) ((long) count * (c + 1) / chunks);
+            tasks[c] = ForkJoinTask.adapt(() -> painter.paint(tile, from, to)).fork();
+        }
+        // the calling thread draws the first chunk
+        painter.paint(tiles[0], 0, count / chunks);
+        for (int c = 1; c < chunks; c++)
+            tasks[c].join();
+
+        for (int c = 0; c < chunks; c++)
+            g.merge(tiles[c]);
+    }
+
+    private void ensureTiles(ScreenBuffer g, int chunks) {
+        if (tiles.length > 0 && (tiles[0].getWidth() != g.getWidth() || tiles[0].getHeight() != g.getHeight()))
+            tiles = new ScreenBuffer[0];
+        if (tiles.length < chunks) {
+            ScreenBuffer[] t = new ScreenBuffer[chunks];
+            System.arraycopy(tiles, 0, t, 0, tiles.length);
+            for (int c = tiles.length; c < chunks; c++)
+                t[c] = g.createTile();
+            tiles = t;
+        }
+    }
+}
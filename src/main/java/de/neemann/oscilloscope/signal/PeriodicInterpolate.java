@@ -8,6 +8,7 @@ public class PeriodicInterpolate implements PeriodicSignal {
     private final double period;
     private final double[] values;
     private final double mean;
+    private final MinMaxTable table;
 
     /**
      * Creates a new instance
@@ -21,6 +22,7 @@ public class PeriodicInterpolate implements PeriodicSignal {
         mean = sum / values.length;
         this.period = period;
         this.values = values;
+        table = new MinMaxTable(values);
     }
 
     @Override
@@ -50,6 +52,69 @@ public class PeriodicInterpolate implements PeriodicSignal {
         return v0 + (v1 - v0) * tm;
     }
 
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        final int len = values.length;
+        final double rel0 = t0 / period;
+        final double dRel = dt / period;
+        for (int i = 0; i < n; i++) {
+            double tRel = rel0 + i * dRel;
+            tRel = tRel - Math.floor(tRel);
+
+            double pos = tRel * len;
+            int index0 = (int) pos;
+            if (index0 >= len)
+                index0 -= len;
+
+            int index1 = index0 + 1;
+            if (index1 >= len)
+                index1 -= len;
+
+            double v0 = values[index0];
+            buffer[i] = v0 + (values[index1] - v0) * (pos - index0);
+        }
+    }
+
+    /**
+     * The values are interpolated linearly, so the extrema in between the
+     * interval borders are table values. They are taken from a min/max table.
+     */
+    @Override
+    public void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        final int len = values.length;
+        final double rel0 = t0 / period;
+        final double dRel = dt / period;
+        final double dPos = dRel * len;
+        for (int i = 0; i < n; i++) {
+            double lo = Math.min(min[i], min[i + 1]);
+            double hi = Math.max(min[i], min[i + 1]);
+            if (dPos >= len) {
+                lo = Math.min(lo, table.min(0, len - 1));
+                hi = Math.max(hi, table.max(0, len - 1));
+            } else {
+                double tRel = rel0 + i * dRel;
+                double pos = (tRel - Math.floor(tRel)) * len;
+                int from = (int) Math.ceil(pos);
+                int to = (int) Math.floor(pos + dPos);
+                if (from >= len) {
+                    from -= len;
+                    to -= len;
+                }
+                if (from <= to) {
+                    if (to < len) {
+                        lo = Math.min(lo, table.min(from, to));
+                        hi = Math.max(hi, table.max(from, to));
+                    } else {
+                        lo = Math.min(lo, Math.min(table.min(from, len - 1), table.min(0, to - len)));
+                        hi = Math.max(hi, Math.max(table.max(from, len - 1), table.max(0, to - len)));
+                    }
+                }
+            }
+            min[i] = lo;
+            max[i] = hi;
+        }
+    }
+
     @Override
     public double mean() {
         return mean;
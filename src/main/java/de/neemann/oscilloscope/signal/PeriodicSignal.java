@@ -1,5 +1,9 @@
 package de.neemann.oscilloscope.signal;
 
+import de.neemann.oscilloscope.signal.primitives.Constant;
+
+import java.util.Arrays;
+
 /**
  * Used to define a periodic signal.
  */
@@ -23,6 +27,11 @@ public interface PeriodicSignal {
         public double mean() {
             return 0;
         }
+
+        @Override
+        public void values(double t0, double dt, double[] buffer, int n) {
+            Arrays.fill(buffer, 0, n, 0);
+        }
     };
 
     /**
@@ -33,6 +42,45 @@ public interface PeriodicSignal {
      */
     double v(double t);
 
+    /**
+     * Fills the given buffer with the signals values at the evenly spaced
+     * times t0, t0+dt, t0+2*dt, ... , t0+(n-1)*dt.
+     * Implementations should override this method if the values can be calculated
+     * more efficiently in a block than by calling {@link #v(double)} for every sample.
+     *
+     * @param t0     the time of the first sample
+     * @param dt     the time between two samples
+     * @param buffer the buffer to fill
+     * @param n      the number of samples to calculate
+     */
+    default void values(double t0, double dt, double[] buffer, int n) {
+        for (int i = 0; i < n; i++)
+            buffer[i] = v(t0 + i * dt);
+    }
+
+    /**
+     * Calculates the envelope of the signal in the n intervals [t0+i*dt, t0+(i+1)*dt].
+     * On entry min contains the n+1 values of the signal at the times t0+i*dt, as
+     * calculated by {@link #values(double, double, double[], int)}. On return min[i]
+     * and max[i] contain the smallest and the largest value in the i-th interval.
+     * The default implementation only takes the values at the interval borders into
+     * account. Implementations which know the extrema in between should override it.
+     *
+     * @param t0  the start of the first interval
+     * @param dt  the length of an interval
+     * @param min the values at the interval borders, the minima on return
+     * @param max the maxima on return
+     * @param n   the number of intervals
+     */
+    default void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        for (int i = 0; i < n; i++) {
+            double a = min[i];
+            double b = min[i + 1];
+            min[i] = Math.min(a, b);
+            max[i] = Math.max(a, b);
+        }
+    }
+
     /**
      * @return the period in seconds
      */
@@ -43,4 +91,43 @@ public interface PeriodicSignal {
      */
     double mean();
 
+    /**
+     * Returns true if the signal repeats itself after {@link #period()}.
+     * A sum of signals with incommensurate periods is not periodic. In this case
+     * {@link #period()} returns the period of its slowest component, which can be
+     * used as a search window, but not to compare phases.
+     *
+     * @return true if the signal is periodic
+     */
+    default boolean isPeriodic() {
+        return true;
+    }
+
+    /**
+     * Returns the period of the fastest component of this signal.
+     * Used to choose step sizes if the period itself is much longer.
+     *
+     * @return the shortest period in seconds
+     */
+    default double shortestPeriod() {
+        return period();
+    }
+
+    /**
+     * Returns the signal factor*v(t)+offset.
+     * Implementations should override this method if they are able to fold the
+     * transformation into themselves, so that evaluating the returned signal costs
+     * no more than evaluating this signal.
+     * If the factor is zero, the returned signal has to be a constant.
+     *
+     * @param factor the factor
+     * @param offset the offset
+     * @return the transformed signal
+     */
+    default PeriodicSignal affine(double factor, double offset) {
+        if (factor == 0)
+            return new Constant(offset, period());
+        return new Affine(this, factor, offset);
+    }
+
 }
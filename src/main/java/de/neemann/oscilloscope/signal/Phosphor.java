@@ -0,0 +1,61 @@
+package de.neemann.oscilloscope.signal;
+
+import de.neemann.oscilloscope.draw.graphics.Style;
+
+/**
+ * The phosphor of the screen.
+ * Every phosphor defines a palette which maps the intensities 0..255 to packed
+ * ARGB colors. Zero is the screen background. The palette ramps from the background
+ * to the color of a dim trace in the lower half and to the color of the brightest
+ * trace in the upper half.
+ */
+public enum Phosphor {
+    /**
+     * Green, used by most analog scopes
+     */
+    P31("P31 Green", 0x00ab00, 0x00ff00),
+    /**
+     * Blue-white
+     */
+    P7("P7 Blue-White", 0x5070e0, 0xe8f0ff),
+    /**
+     * Amber
+     */
+    AMBER("Amber", 0xc07000, 0xffb000);
+
+    private final String name;
+    private final int[] palette;
+
+    Phosphor(String name, int dim, int bright) {
+        this.name = name;
+        int screen = Style.SCREEN.getColor().getRGB();
+        palette = new int[ScreenBuffer.MAX_INTENSITY + 1];
+        int half = ScreenBuffer.MAX_INTENSITY / 2;
+        for (int i = 0; i <= half; i++)
+            palette[i] = mix(screen, dim, i, half);
+        for (int i = half; i <= ScreenBuffer.MAX_INTENSITY; i++)
+            palette[i] = mix(dim, bright, i - half, ScreenBuffer.MAX_INTENSITY - half);
+    }
+
+    private static int mix(int c0, int c1, int i, int n) {
+        int rgb = 0xff000000;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int a = (c0 >> shift) & 0xff;
+            int b = (c1 >> shift) & 0xff;
+            rgb |= (a + (b - a) * i / n) << shift;
+        }
+        return rgb;
+    }
+
+    /**
+     * @return the palette, the index is the intensity
+     */
+    int[] getPalette() {
+        return palette;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
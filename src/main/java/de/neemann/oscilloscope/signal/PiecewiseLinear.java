@@ -0,0 +1,23 @@
+package de.neemann.oscilloscope.signal;
+
+/**
+ * A signal which is piecewise linear.
+ * Such a signal is completely described by its vertices, so it can be drawn
+ * by a few line segments instead of a sample per pixel.
+ */
+public interface PiecewiseLinear extends PeriodicSignal {
+
+    /**
+     * Writes the vertices of the signal in between t0 and t1 to the given arrays.
+     * The first vertex is at t0 and the last vertex is at t1. In between, the signal
+     * is linear between two consecutive vertices. At a jump, two vertices with the
+     * same time are written: the value in front of the jump and the value after it.
+     *
+     * @param t0    the start of the window
+     * @param t1    the end of the window
+     * @param time  the times of the vertices
+     * @param value the values of the vertices
+     * @return the number of vertices or -1 if they don't fit into the arrays
+     */
+    int vertices(double t0, double t1, double[] time, double[] value);
+}
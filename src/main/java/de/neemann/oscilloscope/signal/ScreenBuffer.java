@@ -4,13 +4,33 @@ import de.neemann.oscilloscope.draw.graphics.Style;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.ByteLookupTable;
-import java.awt.image.LookupOp;
-import java.awt.image.LookupTable;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
- * The scope screen buffer
+ * The scope screen buffer.
+ * The phosphor is modelled lazily: for every pixel the intensity and the time of
+ * the last hit by the beam are stored. The time is measured in decay steps, one
+ * step is done by every call of {@link #darken()}. The brightness of a pixel is
+ * calculated from these values only when the buffer is presented. All pixels which
+ * are lit are kept in a list, so the decay costs time proportional to the number of
+ * lit pixels and not to the size of the screen.
+ * <p>
+ * There are two ways the beam lights a pixel. By default, the intensity depends on
+ * the speed of the beam and a pixel keeps the brightest hit. In the accumulation mode,
+ * every hit deposits an energy which is inversely proportional to the distance the
+ * beam travels per step, and the energies of all hits add up. When the buffer is
+ * presented, the energy is mapped to an intensity by a tone mapping curve.
+ * <p>
+ * The buffer is triple buffered. The render thread draws to the phosphor model and
+ * calls {@link #publish()} at the end of each frame. This calculates the colors into
+ * a back image, which is then exchanged with the latest completed image by an atomic
+ * swap. The presenting thread always takes the latest completed image. So neither
+ * thread has to wait for the other. All methods except {@link #drawBufferTo(Graphics2D, int, int)}
+ * have to be called by the render thread.
  */
 public class ScreenBuffer {
     /**
@@ -18,35 +38,87 @@ public class ScreenBuffer {
      */
     public static final int MIN_TRACE_BRIGHT = 30;
 
-    private static final LookupTable LOOKUP;
+    /**
+     * The factor the intensity of a pixel is reduced by in every decay step
+     */
+    private static final float PERSISTENCE = 0.5f;
+    private static final float[] DECAY = new float[16];
 
     static {
-        byte[] data = new byte[256];
-        int green = Style.SCREEN.getColor().getGreen();
-        for (int i = 0; i <= green; i++)
-            data[i] = (byte) i;
-        for (int i = green; i < 256; i++)
-            data[i] = (byte) Math.max(green, i - 40);
-        LOOKUP = new ByteLookupTable(0, data);
+        for (int i = 0; i < DECAY.length; i++)
+            DECAY[i] = (float) Math.pow(PERSISTENCE, i);
     }
 
     /**
-     * Speed dependent trace color
+     * The intensities are in the range 0..255. Zero is the screen background,
+     * 255 is the brightest trace.
+     */
+    static final int MAX_INTENSITY = 255;
+    private static final int SCREEN_RGB = Style.SCREEN.getColor().getRGB();
+
+    /**
+     * Speed dependent trace intensity. The index is the square of the distance
+     * the beam travels per step. Even the fastest trace is MIN_TRACE_BRIGHT
+     * brighter than the background.
      */
     private static final int SPEEDCOLORS = 256;
-    static final Color[] SPEEDCOLOR = new Color[SPEEDCOLORS];
+    static final int[] SPEEDINTENSITY = new int[SPEEDCOLORS];
 
     static {
-        int c0 = Style.SCREEN.getColor().getGreen() + MIN_TRACE_BRIGHT;
+        int screenGreen = Style.SCREEN.getColor().getGreen();
+        int c0 = screenGreen + MIN_TRACE_BRIGHT;
         for (int doss = 0; doss < SPEEDCOLORS; doss++) {
             double dos = Math.sqrt(doss);
-            SPEEDCOLOR[doss] = new Color(0, (int) (255 - dos * (255 - c0) / Math.sqrt(SPEEDCOLORS - 1)), 0);
+            int green = (int) (255 - dos * (255 - c0) / Math.sqrt(SPEEDCOLORS - 1));
+            SPEEDINTENSITY[doss] = (green - screenGreen) * MAX_INTENSITY / (255 - screenGreen);
         }
     }
 
+    /**
+     * The energy a beam deposits in a pixel if it moves one pixel per step
+     */
+    private static final float DWELL_ENERGY = 1;
+    /**
+     * The energy which is mapped to half of the maximum intensity
+     */
+    private static final float TONE_KNEE = 0.25f;
+    /**
+     * The energy which is mapped to the intensity of the fastest trace
+     */
+    private static final float MIN_ENERGY;
+
+    static {
+        int min = SPEEDINTENSITY[SPEEDCOLORS - 1];
+        MIN_ENERGY = TONE_KNEE * min / (MAX_INTENSITY - min);
+    }
+
+    private static volatile boolean accumulation;
+    private static volatile Phosphor phosphor = Phosphor.P31;
+    private static volatile boolean accelerated;
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
 
-    private final BufferedImage buffer;
-    private final Graphics2D g2d;
+    private final Frame[] frames;
+    // the index of the image the render thread calculates the colors into
+    private int back;
+    // the index of the image shown by the presenting thread
+    private int front;
+    // used by the presenting thread to keep the front image in video memory
+    private VolatileImage volatileImage;
+    private boolean volatileStale;
+    // the index of the latest completed image, together with the FRESH flag if it was not yet taken
+    private final AtomicInteger completed;
+    private boolean dirty;
+    // the bounding box of the lit pixels of the latest published frame
+    private Rectangle publishedBounds;
+    // the palette used to calculate the latest published frame
+    private int[] publishedPalette;
+    private final float[] intensity;
+    private final int[] hitTime;
+    private final int[] lit;
+    private int litCount;
+    private int time;
     private final int width;
     private final int height;
 
@@ -57,14 +129,96 @@ public class ScreenBuffer {
      * @param height the height
      */
     public ScreenBuffer(int width, int height) {
+        this(width, height, 3);
+    }
+
+    private ScreenBuffer(int width, int height, int frameCount) {
         this.width = width;
         this.height = height;
-        buffer = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage(width, height);
-        g2d = buffer.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        clear();
+        frames = new Frame[frameCount];
+        for (int i = 0; i < frames.length; i++)
+            frames[i] = new Frame(width, height);
+        back = 0;
+        front = 1;
+        completed = new AtomicInteger(2);
+        intensity = new float[width * height];
+        hitTime = new int[width * height];
+        lit = new int[width * height];
+    }
+
+    /**
+     * Creates a buffer of the same size which is never presented.
+     * Used to draw parts of a frame concurrently. The parts are combined
+     * by {@link #merge(ScreenBuffer)}.
+     *
+     * @return the new buffer
+     */
+    ScreenBuffer createTile() {
+        return new ScreenBuffer(width, height, 0);
+    }
+
+    /**
+     * Adds the pixels drawn to the given tile to this buffer, as if the traces
+     * were drawn to this buffer directly. Afterwards the tile is empty.
+     *
+     * @param tile the tile created by {@link #createTile()}
+     */
+    void merge(ScreenBuffer tile) {
+        final boolean add = accumulation;
+        for (int j = 0; j < tile.litCount; j++) {
+            int i = tile.lit[j];
+            hit(i, tile.intensity[i], add);
+            tile.intensity[i] = 0;
+        }
+        tile.litCount = 0;
+    }
+
+    /**
+     * Enables or disables the accumulation mode of all screen buffers
+     *
+     * @param accumulation true if the energies of the hits are to be accumulated
+     */
+    public static void setAccumulation(boolean accumulation) {
+        ScreenBuffer.accumulation = accumulation;
+    }
+
+    /**
+     * @return true if the accumulation mode is enabled
+     */
+    public static boolean isAccumulation() {
+        return accumulation;
+    }
+
+    /**
+     * Enables or disables the presentation by the use of a {@link VolatileImage}
+     *
+     * @param accelerated true if the frames are to be presented by a volatile image
+     */
+    public static void setAccelerated(boolean accelerated) {
+        ScreenBuffer.accelerated = accelerated;
+    }
+
+    /**
+     * @return true if the frames are presented by a volatile image
+     */
+    public static boolean isAccelerated() {
+        return accelerated;
+    }
+
+    /**
+     * Sets the phosphor of all screen buffers
+     *
+     * @param phosphor the phosphor
+     */
+    public static void setPhosphor(Phosphor phosphor) {
+        ScreenBuffer.phosphor = phosphor;
+    }
+
+    /**
+     * @return the phosphor used by all screen buffers
+     */
+    public static Phosphor getPhosphor() {
+        return phosphor;
     }
 
     /**
@@ -82,30 +236,152 @@ public class ScreenBuffer {
     }
 
     /**
-     * Makes the complete screen darker
+     * Makes the complete screen darker.
+     * Only the time is advanced by one decay step. The pixels are darkened
+     * when the buffer is presented.
      */
-    public synchronized void darken() {
-        LookupOp op = new LookupOp(LOOKUP, null);
-        op.filter(buffer, buffer);
+    public void darken() {
+        time++;
+        dirty = true;
     }
 
     /**
      * Clears the screen
      */
-    public synchronized void clear() {
-        g2d.setColor(Style.SCREEN.getColor());
-        g2d.fillRect(0, 0, width, height);
+    public void clear() {
+        for (int j = 0; j < litCount; j++)
+            intensity[lit[j]] = 0;
+        litCount = 0;
+        dirty = true;
+    }
+
+    /**
+     * Completes the current frame and makes it available to the presenting thread.
+     * Does nothing if the screen has not changed since the last call.
+     *
+     * @return the region of the image which has changed compared to the previously
+     * published frame in image coordinates, or null if nothing has changed
+     */
+    public Rectangle publish() {
+        final int[] palette = phosphor.getPalette();
+        if (!dirty && palette == publishedPalette)
+            return null;
+        Rectangle bounds = resolve(frames[back], palette);
+        publishedPalette = palette;
+        back = completed.getAndSet(back | FRESH) & INDEX;
+        dirty = false;
+
+        Rectangle changed = publishedBounds;
+        if (changed == null)
+            changed = bounds;
+        else if (bounds != null)
+            changed = changed.union(bounds);
+        publishedBounds = bounds;
+        return changed;
     }
 
     /**
-     * Draws the buffer to the given {@link Graphics2D} instance.
+     * Draws the latest completed frame to the given {@link Graphics2D} instance.
+     * Never waits for the render thread. Has to be called by a single presenting thread.
      *
      * @param gr the {@link Graphics2D} instance to draw to
      * @param x  x-pos
      * @param y  y-pos
      */
-    public synchronized void drawBufferTo(Graphics2D gr, int x, int y) {
-        gr.drawImage(buffer, x, y, null);
+    public void drawBufferTo(Graphics2D gr, int x, int y) {
+        if ((completed.get() & FRESH) != 0) {
+            front = completed.getAndSet(front) & INDEX;
+            volatileStale = true;
+        }
+        if (!accelerated || !drawAccelerated(gr, x, y))
+            gr.drawImage(frames[front].image, x, y, null);
+    }
+
+    /**
+     * Draws the front image by the use of a {@link VolatileImage}.
+     * The front image is copied to the volatile image only once after a new frame
+     * was taken or if the contents of the volatile image were lost. All other
+     * repaints are done by the volatile image, which usually resides in video memory.
+     *
+     * @return false if the destination is not a screen
+     */
+    private boolean drawAccelerated(Graphics2D gr, int x, int y) {
+        GraphicsConfiguration gc = gr.getDeviceConfiguration();
+        if (gc == null || gc.getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN)
+            return false;
+
+        do {
+            int state = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(gc);
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+                volatileImage = gc.createCompatibleVolatileImage(width, height);
+                volatileStale = true;
+            } else if (state == VolatileImage.IMAGE_RESTORED)
+                volatileStale = true;
+
+            if (volatileStale) {
+                Graphics2D g = volatileImage.createGraphics();
+                g.drawImage(frames[front].image, 0, 0, null);
+                g.dispose();
+                volatileStale = false;
+            }
+            gr.drawImage(volatileImage, x, y, null);
+        } while (volatileImage.contentsLost());
+        return true;
+    }
+
+    /**
+     * Calculates the colors of all lit pixels at the current time into the given frame.
+     * The pixels lit when the frame was calculated the last time are reset first.
+     * The palette is looked up once per frame, so changing the phosphor has no cost per pixel hit.
+     * Pixels which have faded out are removed from the list of lit pixels.
+     *
+     * @return the bounding box of the lit pixels in image coordinates, or null if no pixel is lit
+     */
+    private Rectangle resolve(Frame f, int[] palette) {
+        final int[] p = f.pixels;
+        for (int j = 0; j < f.drawnCount; j++)
+            p[f.drawn[j]] = SCREEN_RGB;
+
+        final boolean acc = accumulation;
+        int n = 0;
+        int minI = Integer.MAX_VALUE;
+        int maxI = -1;
+        int minX = width;
+        int maxX = -1;
+        for (int j = 0; j < litCount; j++) {
+            int i = lit[j];
+            float e = decayed(i);
+            int v = acc ? (int) (MAX_INTENSITY * e / (e + TONE_KNEE)) : Math.min((int) e, MAX_INTENSITY);
+            if (v <= 0)
+                intensity[i] = 0;
+            else {
+                p[i] = palette[v];
+                lit[n++] = i;
+                if (i < minI) minI = i;
+                if (i > maxI) maxI = i;
+                int x = i % width;
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+            }
+        }
+        litCount = n;
+        System.arraycopy(lit, 0, f.drawn, 0, n);
+        f.drawnCount = n;
+
+        if (n == 0)
+            return null;
+        int minRow = minI / width;
+        return new Rectangle(minX, minRow, maxX - minX + 1, maxI / width - minRow + 1);
+    }
+
+    /**
+     * Returns the intensity of the given pixel at the current time
+     */
+    private float decayed(int i) {
+        int age = time - hitTime[i];
+        if (age >= DECAY.length)
+            return 0;
+        return intensity[i] * DECAY[age];
     }
 
     /**
@@ -116,12 +392,27 @@ public class ScreenBuffer {
      * @param x1 x1
      * @param y1 y1
      */
-    public synchronized void drawTrace(int x0, int y0, int x1, int y1) {
-        if (isOnScreen(x0, y0) || isOnScreen(x1, y1)) {
-            int distOnScreenSqr = sqr(x0 - x1) + sqr(y0 - y1);
-            g2d.setColor(SPEEDCOLOR[Math.min(distOnScreenSqr, SPEEDCOLORS - 1)]);
-            g2d.drawLine(x0, height-y0, x1, height-y1);
-        }
+    public void drawTrace(int x0, int y0, int x1, int y1) {
+        if (isOnScreen(x0, y0) || isOnScreen(x1, y1))
+            drawTrace(x0, y0, x1, y1, sqr(x0 - x1) + sqr(y0 - y1));
+    }
+
+    /**
+     * Draws a trace, color depends on the given distance.
+     * Used if the distance the beam travels per pixel differs from the length of the line.
+     *
+     * @param x0              x0
+     * @param y0              y0
+     * @param x1              x1
+     * @param y1              y1
+     * @param distOnScreenSqr the square of the distance the beam travels per pixel
+     */
+    public void drawTrace(int x0, int y0, int x1, int y1, int distOnScreenSqr) {
+        if (accumulation) {
+            float e = DWELL_ENERGY / (float) Math.sqrt(Math.max(distOnScreenSqr, 1));
+            line(x0, y0, x1, y1, Math.max(e, MIN_ENERGY), true);
+        } else
+            line(x0, y0, x1, y1, SPEEDINTENSITY[Math.min(distOnScreenSqr, SPEEDCOLORS - 1)], false);
     }
 
     /**
@@ -132,19 +423,134 @@ public class ScreenBuffer {
      * @param x1 x1
      * @param y1 y1
      */
-    public synchronized void drawBrightTrace(int x0, int y0, int x1, int y1) {
+    public void drawBrightTrace(int x0, int y0, int x1, int y1) {
         if (isOnScreen(x0, y0) || isOnScreen(x1, y1)) {
-            g2d.setColor(Color.GREEN);
-            g2d.drawLine(x0, height-y0, x1, height-y1);
+            // the beam turns around and dwells at this position
+            if (accumulation)
+                line(x0, y0, x1, y1, DWELL_ENERGY, true);
+            else
+                line(x0, y0, x1, y1, MAX_INTENSITY, false);
         }
     }
 
+    /**
+     * Draws an antialiased line using the algorithm of Xiaolin Wu.
+     * The line is clipped to the screen before it is rasterized, so the cost
+     * depends only on the visible part of the line.
+     */
+    private void line(int x0, int y0, int x1, int y1, float level, boolean add) {
+        int dx = x1 - x0;
+        int dy = y1 - y0;
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            if (dx < 0) {
+                x0 = x1;
+                y0 = y1;
+                dx = -dx;
+                dy = -dy;
+            }
+            if (dx == 0) {
+                plot(x0, y0, level, 256, add);
+                return;
+            }
+            long grad = ((long) dy << 16) / dx;
+            int xs = Math.max(x0, 0);
+            int xe = Math.min(x0 + dx, width - 1);
+            long y = ((long) y0 << 16) + grad * (xs - x0);
+            for (int x = xs; x <= xe; x++) {
+                int yi = (int) (y >> 16);
+                int f = (int) ((y >> 8) & 0xff);
+                plot(x, yi, level, 256 - f, add);
+                if (f != 0)
+                    plot(x, yi + 1, level, f, add);
+                y += grad;
+            }
+        } else {
+            if (dy < 0) {
+                x0 = x1;
+                y0 = y1;
+                dx = -dx;
+                dy = -dy;
+            }
+            long grad = ((long) dx << 16) / dy;
+            int ys = Math.max(y0, 1);
+            int ye = Math.min(y0 + dy, height);
+            long x = ((long) x0 << 16) + grad * (ys - y0);
+            for (int y = ys; y <= ye; y++) {
+                int xi = (int) (x >> 16);
+                int f = (int) ((x >> 8) & 0xff);
+                plot(xi, y, level, 256 - f, add);
+                if (f != 0)
+                    plot(xi + 1, y, level, f, add);
+                x += grad;
+            }
+        }
+    }
+
+    /**
+     * Returns the color of a pixel
+     *
+     * @param x x
+     * @param y y, one is the bottom row
+     * @return the color
+     */
+    int getPixel(int x, int y) {
+        Frame f = frames[back];
+        resolve(f, phosphor.getPalette());
+        return f.pixels[(height - y) * width + x] & 0xffffff;
+    }
+
+    /**
+     * Hits a pixel by the beam.
+     * The pixel either keeps the larger of its decayed intensity and the intensity of
+     * the hit, so a dim trace does not hide a bright one, or the intensity of the hit
+     * is added.
+     *
+     * @param x        x
+     * @param y        y, one is the bottom row
+     * @param level    the intensity of the beam
+     * @param coverage the coverage in the range 0..256
+     * @param add      true if the intensity is to be added
+     */
+    private void plot(int x, int y, float level, int coverage, boolean add) {
+        if (x < 0 || x >= width || y < 1 || y > height)
+            return;
+        float hit = level * coverage / 256;
+        if (hit <= 0)
+            return;
+        hit((height - y) * width + x, hit, add);
+    }
+
+    private void hit(int i, float hit, boolean add) {
+        float old;
+        if (intensity[i] == 0) {
+            lit[litCount++] = i;
+            old = 0;
+        } else
+            old = decayed(i);
+        intensity[i] = add ? old + hit : Math.max(old, hit);
+        hitTime[i] = time;
+        dirty = true;
+    }
+
     private int sqr(int i) {
         return i * i;
     }
 
     private boolean isOnScreen(int x, int y) {
-        return x >= 0 && x < width && y >= 0 && y < height;
+        return x >= 0 && x < width && y >= 1 && y <= height;
     }
 
+    private static final class Frame {
+        private final BufferedImage image;
+        private final int[] pixels;
+        private final int[] drawn;
+        private int drawnCount;
+
+        private Frame(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            drawn = new int[width * height];
+            Arrays.fill(pixels, SCREEN_RGB);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package de.neemann.oscilloscope.signal;
+
+/**
+ * The clock which defines the simulation time of the frames drawn by a {@link Model}.
+ * The wall clock follows the real time. The fixed step clocks advance by a constant
+ * step every frame, independent of the real time. So a simulation using such a clock
+ * can be replayed, and it can run faster than real time if the frames are requested
+ * faster than in real time.
+ */
+public interface SimulationClock {
+    /**
+     * The number of nanoseconds per second
+     */
+    long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Returns the simulation time of a new frame.
+     * Is called by the model once per frame, so the time of a frame is
+     * the same for all the calculations done in the frame.
+     *
+     * @return the time in nanoseconds
+     */
+    long nextFrame();
+
+    /**
+     * Returns the simulation time of a new frame in seconds.
+     *
+     * @return the time in seconds
+     * @see #nextFrame()
+     */
+    default double nextFrameSeconds() {
+        return nextFrame() / (double) NANOS_PER_SECOND;
+    }
+
+    /**
+     * Creates a clock which follows the real time.
+     * The time starts at zero when the clock is created.
+     *
+     * @return the clock
+     */
+    static SimulationClock wallClock() {
+        final long start = System.nanoTime();
+        return () -> System.nanoTime() - start;
+    }
+
+    /**
+     * Creates a clock which advances by the given step every frame.
+     * The first frame is at time zero.
+     * The clock does not limit the frame rate. So a headless run, e.g. a load test,
+     * which calls {@link Model#updateBuffer(ScreenBuffer)} in a loop instead of using
+     * the frame scheduler, runs as fast as possible. If the step is the nominal
+     * frame period, every frame shows the same picture a real time frame would do.
+     *
+     * @param stepNanos the step in nanoseconds
+     * @return the clock
+     */
+    static SimulationClock fixedStep(long stepNanos) {
+        if (stepNanos <= 0)
+            throw new IllegalArgumentException("step must be positive");
+        return new FixedStep(stepNanos);
+    }
+
+    /**
+     * Clock which advances by a constant step every frame
+     */
+    final class FixedStep implements SimulationClock {
+        private final long step;
+        private long time;
+
+        private FixedStep(long step) {
+            this.step = step;
+            this.time = -step;
+        }
+
+        @Override
+        public long nextFrame() {
+            time += step;
+            return time;
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package de.neemann.oscilloscope.signal;
 
 /**
- * Transfers a voltage to a pixel on the screen
+ * Transfers a voltage to a pixel on the screen.
+ * The offset, the position and the scaling are folded into the given signal
+ * by {@link PeriodicSignal#affine(double, double)} when the instance is created.
+ * So for the primitive signals, evaluating the screen signal requires only the
+ * evaluation of the primitive itself followed by a clamping.
  */
 public class ValueToScreen implements PeriodicSignal {
     private final PeriodicSignal sig;
-    private final double pos;
-    private final int divs;
-    private final int ofs;
-    private final int pixels;
-    private final int max;
-    private final int min;
+    private final double scale;
+    private final double shift;
+    private final double max;
+    private final double min;
 
     /**
      * Creates a new screen transformation
@@ -21,25 +23,92 @@ public class ValueToScreen implements PeriodicSignal {
      * @param pixels pixels available on screen
      */
     public ValueToScreen(PeriodicSignal sig, double pos, int divs, int pixels) {
-        this.sig = sig;
-        this.pos = pos;
-        this.divs = divs;
-        this.max = divs * 2;
-        this.min = -divs;
-        this.pixels = pixels;
-        ofs = divs / 2;
+        int ofs = divs / 2;
+        scale = (double) pixels / divs;
+        shift = (ofs + (pos - 0.5) * 20) * scale;
+        this.sig = sig.affine(scale, shift);
+        this.max = divs * 2 * scale;
+        this.min = -divs * scale;
     }
 
     @Override
     public double v(double t) {
-        double div = sig.v(t) + ofs + (pos - 0.5) * 20;
+        double y = sig.v(t);
 
-        if (div > max)
-            div = max;
-        else if (div < min)
-            div = min;
+        if (y > max)
+            return max;
+        else if (y < min)
+            return min;
 
-        return div * pixels / divs;
+        return y;
+    }
+
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        sig.values(t0, dt, buffer, n);
+        for (int i = 0; i < n; i++) {
+            double y = buffer[i];
+
+            if (y > max)
+                buffer[i] = max;
+            else if (y < min)
+                buffer[i] = min;
+        }
+    }
+
+    @Override
+    public void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        sig.envelope(t0, dt, min, max, n);
+        for (int i = 0; i < n; i++) {
+            min[i] = clamp(min[i]);
+            max[i] = clamp(max[i]);
+        }
+    }
+
+    private double clamp(double y) {
+        if (y > max)
+            return max;
+        else if (y < min)
+            return min;
+        return y;
+    }
+
+    /**
+     * Writes the vertices of the signal in screen coordinates to the given arrays,
+     * if the signal is piecewise linear. The values are not clamped.
+     *
+     * @param t0    the start of the window
+     * @param t1    the end of the window
+     * @param time  the times of the vertices
+     * @param value the values of the vertices
+     * @return the number of vertices or -1 if the signal is not piecewise linear
+     * or the vertices don't fit into the arrays
+     * @see PiecewiseLinear#vertices(double, double, double[], double[])
+     */
+    public int vertices(double t0, double t1, double[] time, double[] value) {
+        if (sig instanceof PiecewiseLinear)
+            return ((PiecewiseLinear) sig).vertices(t0, t1, time, value);
+        return -1;
+    }
+
+    /**
+     * Transforms values of the base signal to screen coordinates.
+     * Used if the samples of the base signal are already available.
+     *
+     * @param buffer the values to transform in place
+     * @param n      the number of values
+     */
+    public void map(double[] buffer, int n) {
+        for (int i = 0; i < n; i++) {
+            double y = buffer[i] * scale + shift;
+
+            if (y > max)
+                y = max;
+            else if (y < min)
+                y = min;
+
+            buffer[i] = y;
+        }
     }
 
     @Override
@@ -47,8 +116,18 @@ public class ValueToScreen implements PeriodicSignal {
         return sig.period();
     }
 
+    @Override
+    public boolean isPeriodic() {
+        return sig.isPeriodic();
+    }
+
+    @Override
+    public double shortestPeriod() {
+        return sig.shortestPeriod();
+    }
+
     @Override
     public double mean() {
-        return sig.mean() + ofs + (pos - 0.5) * 20;
+        return sig.mean();
     }
 }
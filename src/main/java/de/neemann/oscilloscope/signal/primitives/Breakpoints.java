@@ -0,0 +1,71 @@
+package de.neemann.oscilloscope.signal.primitives;
+
+/**
+ * The breakpoints of the normalized shape of a piecewise linear signal within one period.
+ * At every breakpoint the shape has a value in front of it and a value after it,
+ * which differ if the shape jumps.
+ */
+final class Breakpoints {
+    private final double[] phase;
+    private final double[] before;
+    private final double[] after;
+
+    /**
+     * Creates a new instance
+     *
+     * @param phase  the phases of the breakpoints in ascending order, in the range [0,1)
+     * @param before the values in front of the breakpoints
+     * @param after  the values after the breakpoints
+     */
+    Breakpoints(double[] phase, double[] before, double[] after) {
+        this.phase = phase;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * Writes the vertices of the given signal in between t0 and t1.
+     *
+     * @param s     the signal which has this shape
+     * @param t0    the start of the window
+     * @param t1    the end of the window
+     * @param time  the times of the vertices
+     * @param value the values of the vertices
+     * @return the number of vertices or -1 if they don't fit into the arrays
+     * @see de.neemann.oscilloscope.signal.PiecewiseLinear#vertices(double, double, double[], double[])
+     */
+    int vertices(Signal s, double t0, double t1, double[] time, double[] value) {
+        final double ampl = s.getAmplitude();
+        final double omega = s.getOmega();
+        final double ph = s.getPhase();
+        final double offs = s.getOffset();
+        final int max = Math.min(time.length, value.length);
+        if (max < 2)
+            return -1;
+
+        final double arg0 = (t0 * omega + ph) / (2 * Math.PI);
+        final double arg1 = (t1 * omega + ph) / (2 * Math.PI);
+        int n = 0;
+        time[n] = t0;
+        value[n++] = s.v(t0);
+        for (double k = Math.floor(arg0); k <= arg1; k++) {
+            for (int j = 0; j < phase.length; j++) {
+                double arg = k + phase[j];
+                if (arg > arg0 && arg < arg1) {
+                    double t = (arg * 2 * Math.PI - ph) / omega;
+                    if (n + 3 > max)
+                        return -1;
+                    time[n] = t;
+                    value[n++] = before[j] * ampl + offs;
+                    if (before[j] != after[j]) {
+                        time[n] = t;
+                        value[n++] = after[j] * ampl + offs;
+                    }
+                }
+            }
+        }
+        time[n] = t1;
+        value[n++] = s.v(t1);
+        return n;
+    }
+}
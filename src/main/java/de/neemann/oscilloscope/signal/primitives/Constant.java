@@ -0,0 +1,49 @@
+package de.neemann.oscilloscope.signal.primitives;
+
+import de.neemann.oscilloscope.signal.PeriodicSignal;
+
+import java.util.Arrays;
+
+/**
+ * A constant signal
+ */
+public final class Constant implements PeriodicSignal {
+    private final double value;
+    private final double period;
+
+    /**
+     * Creates a new instance
+     *
+     * @param value  the value
+     * @param period the period reported by this signal
+     */
+    public Constant(double value, double period) {
+        this.value = value;
+        this.period = period;
+    }
+
+    @Override
+    public double v(double t) {
+        return value;
+    }
+
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        Arrays.fill(buffer, 0, n, value);
+    }
+
+    @Override
+    public double period() {
+        return period;
+    }
+
+    @Override
+    public double mean() {
+        return value;
+    }
+
+    @Override
+    public PeriodicSignal affine(double factor, double offset) {
+        return new Constant(value * factor + offset, period);
+    }
+}
@@ -1,9 +1,13 @@
 package de.neemann.oscilloscope.signal.primitives;
 
+import de.neemann.oscilloscope.signal.PiecewiseLinear;
+
 /**
  * The sawtooth signal
  */
-public class Sawtooth extends Signal {
+public class Sawtooth extends Signal implements PiecewiseLinear {
+    private static final Breakpoints SHAPE = new Breakpoints(
+            new double[]{0}, new double[]{1}, new double[]{-1});
 
     /**
      * Creates a new instance
@@ -23,4 +27,44 @@ public class Sawtooth extends Signal {
         double vs = arg - Math.floor(arg);
         return (vs * 2 - 1) * getAmplitude() + getOffset();
     }
+
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        final double arg0 = (t0 * getOmega() + getPhase()) / (2 * Math.PI);
+        final double dArg = dt * getOmega() / (2 * Math.PI);
+        final double ampl = getAmplitude();
+        final double offs = getOffset();
+        for (int i = 0; i < n; i++) {
+            double arg = arg0 + i * dArg;
+            double vs = arg - Math.floor(arg);
+            buffer[i] = (vs * 2 - 1) * ampl + offs;
+        }
+    }
+
+    @Override
+    protected Signal create(double ampl, double omega, double phase, double offs) {
+        return new Sawtooth(ampl, omega, phase, offs);
+    }
+
+    @Override
+    protected double crossingPhase(double u, boolean rising) {
+        if (!(Math.abs(u) < 1))
+            return Double.NaN;
+        return rising ? (u + 1) / 2 : 0;
+    }
+
+    @Override
+    protected double maxPhase() {
+        return 0;
+    }
+
+    @Override
+    protected double minPhase() {
+        return 0;
+    }
+
+    @Override
+    public int vertices(double t0, double t1, double[] time, double[] value) {
+        return SHAPE.vertices(this, t0, t1, time, value);
+    }
 }
@@ -38,6 +38,104 @@ public abstract class Signal implements PeriodicSignal {
         return offs;
     }
 
+    @Override
+    public PeriodicSignal affine(double factor, double offset) {
+        if (factor == 0)
+            return new Constant(offset, period);
+        return create(ampl * factor, omega, phase, offs * factor + offset);
+    }
+
+    /**
+     * Creates a signal of the same shape with the given parameters.
+     *
+     * @param ampl  the amplitude
+     * @param omega the circular frequency
+     * @param phase the phase
+     * @param offs  the offset
+     * @return the new signal
+     */
+    protected abstract Signal create(double ampl, double omega, double phase, double offs);
+
+    /**
+     * The values at the interval borders are extended by the extreme values of the
+     * signal if the phase at which the normalized shape reaches its maximum or
+     * minimum lies within the interval.
+     */
+    @Override
+    public void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        final double arg0 = (t0 * omega + phase) / (2 * Math.PI);
+        final double dArg = dt * omega / (2 * Math.PI);
+        final double hi = offs + Math.abs(ampl);
+        final double lo = offs - Math.abs(ampl);
+        final double hiPhase = ampl >= 0 ? maxPhase() : minPhase();
+        final double loPhase = ampl >= 0 ? minPhase() : maxPhase();
+        for (int i = 0; i < n; i++) {
+            double a = min[i];
+            double b = min[i + 1];
+            double arg = arg0 + i * dArg;
+            double pa = arg - Math.floor(arg);
+            double pb = pa + dArg;
+            max[i] = dArg >= 1 || contains(hiPhase, pa, pb) ? hi : Math.max(a, b);
+            min[i] = dArg >= 1 || contains(loPhase, pa, pb) ? lo : Math.min(a, b);
+        }
+    }
+
+    private static boolean contains(double p, double pa, double pb) {
+        return (p >= pa && p <= pb) || p + 1 <= pb;
+    }
+
+    /**
+     * Calculates the time of the first crossing of the given level at or after t0.
+     * A rising crossing is a transition from a value not above the level to a value
+     * above the level, a falling crossing is the opposite transition.
+     * The time is calculated in closed form, the signal is not evaluated at all.
+     *
+     * @param t0     the time to start the search
+     * @param level  the level
+     * @param rising true if a rising crossing is searched
+     * @return the time of the crossing or NaN if the signal never crosses the level
+     */
+    public double nextCrossing(double t0, double level, boolean rising) {
+        if (ampl == 0)
+            return Double.NaN;
+        // a negative amplitude mirrors the shape, so a rising crossing of the
+        // signal is a falling crossing of the shape
+        double ph = crossingPhase((level - offs) / ampl, rising ^ (ampl < 0));
+        if (Double.isNaN(ph))
+            return Double.NaN;
+        double arg0 = (t0 * omega + phase) / (2 * Math.PI);
+        double t = ((Math.ceil(arg0 - ph) + ph) * 2 * Math.PI - phase) / omega;
+        return Math.max(t, t0);
+    }
+
+    /**
+     * Returns the phase at which the normalized shape crosses the given level.
+     * The normalized shape has an amplitude of one and no offset, and the phase is
+     * measured in periods, so at the phase p the shape has the value of the signal
+     * at the argument 2*pi*p of its periodic function.
+     *
+     * @param u      the level relative to the normalized shape
+     * @param rising true if a rising crossing is searched
+     * @return the phase in the range [0,1) or NaN if there is no such crossing
+     */
+    protected abstract double crossingPhase(double u, boolean rising);
+
+    /**
+     * Returns the phase at which the normalized shape reaches its maximum.
+     * At a discontinuity the shape takes its maximum on one side of the phase.
+     *
+     * @return the phase in the range [0,1)
+     */
+    protected abstract double maxPhase();
+
+    /**
+     * Returns the phase at which the normalized shape reaches its minimum.
+     * At a discontinuity the shape takes its minimum on one side of the phase.
+     *
+     * @return the phase in the range [0,1)
+     */
+    protected abstract double minPhase();
+
     /**
      * @return the amplitude
      */
@@ -29,11 +29,28 @@ public class SignalFunc implements PeriodicSignal {
         return f.f(s.v(t));
     }
 
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        s.values(t0, dt, buffer, n);
+        for (int i = 0; i < n; i++)
+            buffer[i] = f.f(buffer[i]);
+    }
+
     @Override
     public double period() {
         return s.period();
     }
 
+    @Override
+    public boolean isPeriodic() {
+        return s.isPeriodic();
+    }
+
+    @Override
+    public double shortestPeriod() {
+        return s.shortestPeriod();
+    }
+
     @Override
     public double mean() {
         return mean;
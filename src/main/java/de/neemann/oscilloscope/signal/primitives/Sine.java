@@ -4,6 +4,7 @@ package de.neemann.oscilloscope.signal.primitives;
  * A sine signal
  */
 public final class Sine extends Signal {
+    private static final int RESYNC = 256;
 
     /**
      * Creates a new instance
@@ -22,4 +23,61 @@ public final class Sine extends Signal {
         return getAmplitude() * Math.sin(getOmega() * t + getPhase()) + getOffset();
     }
 
+    /**
+     * Calculates the values using a rotation recurrence instead of calling
+     * {@link Math#sin(double)} for every sample. The pair (sin, cos) is rotated by
+     * the angle omega*dt in every step. To bound the accumulated rounding error,
+     * the pair is recalculated exactly every {@link #RESYNC} samples.
+     */
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        final double ampl = getAmplitude();
+        final double omega = getOmega();
+        final double phase = getPhase();
+        final double offs = getOffset();
+
+        final double delta = omega * dt;
+        final double sinDelta = Math.sin(delta);
+        final double cosDelta = Math.cos(delta);
+
+        int i = 0;
+        while (i < n) {
+            double arg = omega * (t0 + i * dt) + phase;
+            double sin = Math.sin(arg);
+            double cos = Math.cos(arg);
+            int end = Math.min(n, i + RESYNC);
+            while (i < end) {
+                buffer[i++] = ampl * sin + offs;
+                double s = sin * cosDelta + cos * sinDelta;
+                cos = cos * cosDelta - sin * sinDelta;
+                sin = s;
+            }
+        }
+    }
+
+    @Override
+    protected Signal create(double ampl, double omega, double phase, double offs) {
+        return new Sine(ampl, omega, phase, offs);
+    }
+
+    @Override
+    protected double crossingPhase(double u, boolean rising) {
+        if (!(Math.abs(u) < 1))
+            return Double.NaN;
+        double a = Math.asin(u) / (2 * Math.PI);
+        if (rising)
+            return a < 0 ? a + 1 : a;
+        else
+            return 0.5 - a;
+    }
+
+    @Override
+    protected double maxPhase() {
+        return 0.25;
+    }
+
+    @Override
+    protected double minPhase() {
+        return 0.75;
+    }
 }
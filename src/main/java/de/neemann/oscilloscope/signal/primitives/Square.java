@@ -1,9 +1,13 @@
 package de.neemann.oscilloscope.signal.primitives;
 
+import de.neemann.oscilloscope.signal.PiecewiseLinear;
+
 /**
  * The square signal
  */
-public class Square extends Signal {
+public class Square extends Signal implements PiecewiseLinear {
+    private static final Breakpoints SHAPE = new Breakpoints(
+            new double[]{0, 0.5}, new double[]{-1, 1}, new double[]{1, -1});
 
     /**
      * Creates a new instance
@@ -23,4 +27,42 @@ public class Square extends Signal {
         return (arg - Math.floor(arg) < 0.5 ? getAmplitude() : -getAmplitude()) + getOffset();
     }
 
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        final double arg0 = (t0 * getOmega() + getPhase()) / (2 * Math.PI);
+        final double dArg = dt * getOmega() / (2 * Math.PI);
+        final double high = getAmplitude() + getOffset();
+        final double low = -getAmplitude() + getOffset();
+        for (int i = 0; i < n; i++) {
+            double arg = arg0 + i * dArg;
+            buffer[i] = arg - Math.floor(arg) < 0.5 ? high : low;
+        }
+    }
+
+    @Override
+    protected Signal create(double ampl, double omega, double phase, double offs) {
+        return new Square(ampl, omega, phase, offs);
+    }
+
+    @Override
+    protected double crossingPhase(double u, boolean rising) {
+        if (!(Math.abs(u) < 1))
+            return Double.NaN;
+        return rising ? 0 : 0.5;
+    }
+
+    @Override
+    protected double maxPhase() {
+        return 0;
+    }
+
+    @Override
+    protected double minPhase() {
+        return 0.5;
+    }
+
+    @Override
+    public int vertices(double t0, double t1, double[] time, double[] value) {
+        return SHAPE.vertices(this, t0, t1, time, value);
+    }
 }
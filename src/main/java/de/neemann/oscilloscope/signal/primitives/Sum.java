@@ -1,17 +1,34 @@
 package de.neemann.oscilloscope.signal.primitives;
 
-import de.neemann.oscilloscope.draw.elements.DoubleHelper;
 import de.neemann.oscilloscope.signal.PeriodicSignal;
 
 /**
- * Used to add two signals
+ * Used to add two signals.
+ * The sum is periodic if the ratio of the two periods is a fraction with a small
+ * denominator. Its period is the least common multiple of both periods.
+ * Otherwise the periods are incommensurate and the sum is not periodic at all.
+ * The block methods reuse a scratch buffer held by the instance, so a sum must
+ * not be evaluated by several threads at the same time. The models create their
+ * own sums, so every sum is used by a single render thread only.
  */
 public class Sum implements PeriodicSignal {
+    /**
+     * The largest denominator of the period ratio which is detected
+     */
+    static final int MAX_DENOMINATOR = 100;
+    /**
+     * The relative tolerance of the period ratio
+     */
+    static final double RATIO_EPS = 1e-6;
 
     private final PeriodicSignal a;
     private final PeriodicSignal b;
     private final double period;
+    private final boolean periodic;
+    private final double shortestPeriod;
     private final double mean;
+    private double[] bBuffer = new double[0];
+    private double[] bMax = new double[0];
 
     /**
      * Creates a new sum signal
@@ -24,25 +41,116 @@ public class Sum implements PeriodicSignal {
         this.b = b;
         double p1 = a.period();
         double p2 = b.period();
-        if (DoubleHelper.equal(p1, p2)) {
-            this.period = (p1 + p2) / 2;
+        double p = commonPeriod(p1, p2);
+        if (Double.isNaN(p)) {
+            period = Math.max(p1, p2);
+            periodic = false;
         } else {
-            this.period = p1 * p2 / Math.abs(p1 - p2);
+            period = p;
+            periodic = a.isPeriodic() && b.isPeriodic();
         }
+        shortestPeriod = Math.min(a.shortestPeriod(), b.shortestPeriod());
         mean = a.mean() + b.mean();
     }
 
+    /**
+     * Calculates the least common multiple of two periods.
+     * The ratio of the periods is expanded into a continued fraction until a
+     * convergent h/k matches the ratio within the tolerance {@link #RATIO_EPS}.
+     * Then k periods of p2 take the same time as h periods of p1.
+     *
+     * @param p1 the first period
+     * @param p2 the second period
+     * @return the common period or NaN if there is no denominator up to {@link #MAX_DENOMINATOR}
+     */
+    static double commonPeriod(double p1, double p2) {
+        double r = p2 / p1;
+        double x = r;
+        double h = 1;
+        double hPrev = 0;
+        double k = 0;
+        double kPrev = 1;
+        while (true) {
+            double i = Math.floor(x);
+            double hNext = i * h + hPrev;
+            double kNext = i * k + kPrev;
+            if (!(kNext <= MAX_DENOMINATOR))
+                return Double.NaN;
+            hPrev = h;
+            kPrev = k;
+            h = hNext;
+            k = kNext;
+            if (Math.abs(h / k - r) <= r * RATIO_EPS)
+                return (p1 * h + p2 * k) / 2;
+            x = 1 / (x - i);
+        }
+    }
+
 
     @Override
     public double v(double t) {
         return a.v(t) + b.v(t);
     }
 
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        bBuffer = ensureSize(bBuffer, n);
+        double[] bb = bBuffer;
+        a.values(t0, dt, buffer, n);
+        b.values(t0, dt, bb, n);
+        for (int i = 0; i < n; i++)
+            buffer[i] += bb[i];
+    }
+
+    private static double[] ensureSize(double[] buffer, int n) {
+        if (buffer.length < n)
+            return new double[n];
+        return buffer;
+    }
+
+    /**
+     * The envelopes of both signals are calculated and added. This is an upper
+     * bound of the envelope of the sum, which is tight if one of the signals is
+     * slow compared to the interval length.
+     * Only signal b is sampled at the interval borders. The values of signal a
+     * are obtained by subtracting them from the given values of the sum.
+     */
+    @Override
+    public void envelope(double t0, double dt, double[] min, double[] max, int n) {
+        bBuffer = ensureSize(bBuffer, n + 1);
+        bMax = ensureSize(bMax, n);
+        double[] bMin = bBuffer;
+        b.values(t0, dt, bMin, n + 1);
+        for (int i = 0; i <= n; i++)
+            min[i] -= bMin[i];
+        a.envelope(t0, dt, min, max, n);
+        b.envelope(t0, dt, bMin, bMax, n);
+        for (int i = 0; i < n; i++) {
+            min[i] += bMin[i];
+            max[i] += bMax[i];
+        }
+    }
+
+    @Override
+    public PeriodicSignal affine(double factor, double offset) {
+        return new Sum(a.affine(factor, offset), b.affine(factor, 0));
+    }
+
     @Override
     public double period() {
         return period;
     }
 
+    @Override
+    public boolean isPeriodic() {
+        return periodic;
+    }
+
+    @Override
+    public double shortestPeriod() {
+        return shortestPeriod;
+    }
+
     @Override
     public double mean() {
         return mean;
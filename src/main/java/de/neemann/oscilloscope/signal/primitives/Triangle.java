@@ -1,9 +1,13 @@
 package de.neemann.oscilloscope.signal.primitives;
 
+import de.neemann.oscilloscope.signal.PiecewiseLinear;
+
 /**
  * The triangle signal
  */
-public class Triangle extends Signal {
+public class Triangle extends Signal implements PiecewiseLinear {
+    private static final Breakpoints SHAPE = new Breakpoints(
+            new double[]{0, 0.5}, new double[]{-1, 1}, new double[]{-1, 1});
 
     /**
      * Creates a new instance
@@ -24,4 +28,43 @@ public class Triangle extends Signal {
         return (vt < 0.5 ? getAmplitude() * (4 * vt - 1) : getAmplitude() * (4 * (1 - vt) - 1)) + getOffset();
     }
 
+    @Override
+    public void values(double t0, double dt, double[] buffer, int n) {
+        final double arg0 = (t0 * getOmega() + getPhase()) / (2 * Math.PI);
+        final double dArg = dt * getOmega() / (2 * Math.PI);
+        final double ampl = getAmplitude();
+        final double offs = getOffset();
+        for (int i = 0; i < n; i++) {
+            double arg = arg0 + i * dArg;
+            double vt = arg - Math.floor(arg);
+            buffer[i] = (vt < 0.5 ? ampl * (4 * vt - 1) : ampl * (4 * (1 - vt) - 1)) + offs;
+        }
+    }
+
+    @Override
+    protected Signal create(double ampl, double omega, double phase, double offs) {
+        return new Triangle(ampl, omega, phase, offs);
+    }
+
+    @Override
+    protected double crossingPhase(double u, boolean rising) {
+        if (!(Math.abs(u) < 1))
+            return Double.NaN;
+        return rising ? (u + 1) / 4 : (3 - u) / 4;
+    }
+
+    @Override
+    protected double maxPhase() {
+        return 0.5;
+    }
+
+    @Override
+    protected double minPhase() {
+        return 0;
+    }
+
+    @Override
+    public int vertices(double t0, double t1, double[] time, double[] value) {
+        return SHAPE.vertices(this, t0, t1, time, value);
+    }
 }
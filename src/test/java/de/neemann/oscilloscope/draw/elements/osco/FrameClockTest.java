@@ -0,0 +1,76 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameClockTest extends TestCase {
+
+    public void testSharedTick() {
+        FrameSchedulerTest.ManualExecutor executor = new FrameSchedulerTest.ManualExecutor();
+        FrameClock fc = new FrameClock(2, executor);
+        try {
+            ArrayList<Rectangle> repaints = new ArrayList<>();
+            JComponent component = new JPanel() {
+                @Override
+                public void repaint(long tm, int x, int y, int width, int height) {
+                    repaints.add(new Rectangle(x, y, width, height));
+                }
+            };
+            ArrayList<TestClient> clients = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                TestClient c = new TestClient(component, new Rectangle(i * 10, 0, 5, 5));
+                clients.add(c);
+                fc.register(c);
+            }
+
+            // the panel itself repaints while it is set up
+            repaints.clear();
+            for (int i = 0; i < 10; i++)
+                assertTrue(executor.runNext());
+
+            // every client is drawn once per tick, and there is one coalesced repaint per tick
+            for (TestClient c : clients)
+                assertEquals(10, c.frames.get());
+            assertEquals(10, repaints.size());
+            for (Rectangle r : repaints)
+                assertEquals(new Rectangle(0, 0, 25, 5), r);
+
+            // the clock stops if the last client is removed
+            fc.unregister(clients.get(0));
+            assertTrue(executor.runNext());
+            assertEquals(10, clients.get(0).frames.get());
+            assertEquals(11, clients.get(1).frames.get());
+            fc.unregister(clients.get(1));
+            fc.unregister(clients.get(2));
+            assertFalse(executor.runNext());
+        } finally {
+            fc.shutdown();
+        }
+    }
+
+    private static final class TestClient implements FrameClock.Client {
+        private final JComponent component;
+        private final Rectangle changed;
+        private final AtomicInteger frames = new AtomicInteger();
+
+        private TestClient(JComponent component, Rectangle changed) {
+            this.component = component;
+            this.changed = changed;
+        }
+
+        @Override
+        public Rectangle drawFrame() {
+            frames.incrementAndGet();
+            return new Rectangle(changed);
+        }
+
+        @Override
+        public JComponent getComponent() {
+            return component;
+        }
+    }
+}
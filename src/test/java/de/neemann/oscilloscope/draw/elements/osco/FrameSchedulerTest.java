@@ -0,0 +1,146 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+public class FrameSchedulerTest extends TestCase {
+    private static final long MS = 1000000L;
+
+    public void testAdaptsToCost() {
+        ManualExecutor executor = new ManualExecutor();
+        int[] frames = new int[1];
+        FrameScheduler fs = new FrameScheduler(executor, () -> {
+            frames[0]++;
+            executor.advance(20 * MS);
+        }, 10, 100, executor::nanoTime);
+        fs.start();
+        for (int i = 0; i < 50; i++)
+            assertTrue(executor.runNext());
+        assertEquals(50, frames[0]);
+
+        // a frame costs 20ms, so the period is 30ms
+        assertEquals(30 * MS, fs.getPeriod());
+        assertEquals(1000.0 / 30, fs.getFps(), 1e-9);
+        assertEquals(0, fs.getDroppedFrames());
+
+        // no frames are started after the scheduler was stopped
+        fs.stop();
+        assertFalse(executor.runNext());
+        assertEquals(50, frames[0]);
+    }
+
+    public void testLimitedByMaxRate() {
+        ManualExecutor executor = new ManualExecutor();
+        FrameScheduler fs = new FrameScheduler(executor, () -> {
+        }, 10, 50, executor::nanoTime);
+        fs.start();
+        for (int i = 0; i < 20; i++)
+            assertTrue(executor.runNext());
+        assertEquals(20 * MS, fs.getPeriod());
+        assertEquals(50, fs.getFps(), 1e-9);
+        assertEquals(0, fs.getDroppedFrames());
+    }
+
+    public void testDropsFrames() {
+        ManualExecutor executor = new ManualExecutor();
+        FrameScheduler fs = new FrameScheduler(executor, () -> executor.advance(250 * MS), 10, 50, executor::nanoTime);
+        fs.start();
+        for (int i = 0; i < 5; i++)
+            assertTrue(executor.runNext());
+
+        // the period is limited to 100ms, so every frame takes the time of three
+        assertEquals(100 * MS, fs.getPeriod());
+        assertEquals(4, fs.getFps(), 1e-9);
+        assertEquals(10, fs.getDroppedFrames());
+    }
+
+    public void testRestartWhileRunning() {
+        ManualExecutor executor = new ManualExecutor();
+        int[] frames = new int[1];
+        FrameScheduler[] fs = new FrameScheduler[1];
+        fs[0] = new FrameScheduler(executor, () -> {
+            if (++frames[0] == 3) {
+                fs[0].stop();
+                fs[0].start();
+            }
+            executor.advance(5 * MS);
+        }, 10, 50, executor::nanoTime);
+        fs[0].start();
+
+        // the restart must not lead to a second chain of frames
+        for (int i = 0; i < 20; i++) {
+            assertTrue(executor.runNext());
+            assertEquals(1, executor.pending());
+        }
+        assertEquals(20, frames[0]);
+        assertEquals(50, fs[0].getFps(), 1e-9);
+    }
+
+    /**
+     * Executor which runs the scheduled tasks one by one when asked to do so.
+     * It provides the clock of the scheduler, which jumps to the due time of
+     * every task that is run. Also used by the {@link FrameClockTest}.
+     */
+    static final class ManualExecutor extends ScheduledThreadPoolExecutor {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+        private long time = 1000 * MS;
+
+        ManualExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task t = new Task(command, time + unit.toNanos(delay));
+            tasks.add(t);
+            return t;
+        }
+
+        long nanoTime() {
+            return time;
+        }
+
+        void advance(long nanos) {
+            time += nanos;
+        }
+
+        int pending() {
+            tasks.removeIf(Future::isCancelled);
+            return tasks.size();
+        }
+
+        boolean runNext() {
+            if (pending() == 0)
+                return false;
+            Task next = tasks.get(0);
+            for (Task t : tasks)
+                if (t.due < next.due)
+                    next = t;
+            tasks.remove(next);
+            time = Math.max(time, next.due);
+            next.run();
+            return true;
+        }
+
+        private final class Task extends FutureTask<Void> implements ScheduledFuture<Void> {
+            private final long due;
+
+            private Task(Runnable runnable, long due) {
+                super(runnable, null);
+                this.due = due;
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(due - time, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed o) {
+                return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import de.neemann.oscilloscope.draw.elements.Mode;
+import de.neemann.oscilloscope.draw.elements.TrigSource;
+import junit.framework.TestCase;
+
+public class ScopeSettingsTest extends TestCase {
+
+    public void testSnapshot() {
+        Oscilloscope osco = new Oscilloscope();
+        ScopeSettings s = osco.getSettings();
+        assertEquals(osco.getMode().getSelected(), s.getMode());
+        assertEquals(osco.getHorizontal().getTimePerDiv(), s.getTimePerDiv(), 0);
+
+        // a snapshot never changes, a new one is published
+        osco.getMode().set(Mode.DUAL.ordinal());
+        assertNotSame(s, osco.getSettings());
+        assertEquals(Mode.DUAL, osco.getSettings().getMode());
+
+        s = osco.getSettings();
+        osco.getTrigger().getLevelPoti().set(0.75);
+        assertEquals(osco.getTrigger().getLevel(), osco.getSettings().getTrigLevel(), 0);
+        assertEquals(s.getMode(), osco.getSettings().getMode());
+
+        osco.getTrigger().getTrigSourceSwitch().set(TrigSource.Ch_2.ordinal());
+        assertEquals(TrigSource.Ch_2, osco.getSettings().getTrigSource());
+
+        s = osco.getSettings();
+        osco.getCh1().getPosPoti().set(0.3);
+        assertNotSame(s.getSignal1(), osco.getSettings().getSignal1());
+        assertEquals(osco.getCh1().getPos(), osco.getSettings().getCh1Pos(), 0);
+    }
+}
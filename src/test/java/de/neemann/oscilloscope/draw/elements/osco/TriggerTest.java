@@ -0,0 +1,102 @@
+package de.neemann.oscilloscope.draw.elements.osco;
+
+import de.neemann.oscilloscope.signal.PeriodicSignal;
+import de.neemann.oscilloscope.signal.primitives.Sawtooth;
+import de.neemann.oscilloscope.signal.primitives.Signal;
+import de.neemann.oscilloscope.signal.primitives.Sine;
+import de.neemann.oscilloscope.signal.primitives.Square;
+import de.neemann.oscilloscope.signal.primitives.Triangle;
+import junit.framework.TestCase;
+
+public class TriggerTest extends TestCase {
+
+    public void testSineUp() {
+        // 10Hz at the smallest time base: the old pixel stepping needed millions of evaluations
+        Counter sine = new Counter(new Sine(3, 2 * Math.PI * 10, 0, 1));
+        double eps = 1e-10;
+        Trigger.Trig trig = Trigger.findTrigger(sine, 0.03, 0.03 + sine.period(), 2, true, eps);
+        assertTrue(trig.isFound());
+        // 3*sin(w*t)+1=2 on the rising slope
+        double exp = (2 * Math.PI + Math.asin(1 / 3.0)) / (2 * Math.PI * 10);
+        assertEquals(exp, trig.getT(), eps);
+        assertTrue(sine.count < 400);
+    }
+
+    public void testSineDown() {
+        Sine sine = new Sine(3, 2 * Math.PI * 10, 0, 0);
+        Trigger.Trig trig = Trigger.findTrigger(sine, 0, sine.period(), 0, false, 1e-9);
+        assertTrue(trig.isFound());
+        assertEquals(0.05, trig.getT(), 1e-9);
+    }
+
+    public void testSquare() {
+        Square square = new Square(1, 2 * Math.PI * 1000, 0, 0);
+        Trigger.Trig trig = Trigger.findTrigger(square, 0.0001, 0.0001 + square.period(), 0, false, 1e-9);
+        assertTrue(trig.isFound());
+        assertEquals(0.0005, trig.getT(), 1e-9);
+    }
+
+    public void testNoTrigger() {
+        Sine sine = new Sine(3, 2 * Math.PI * 10, 0, 0);
+        Trigger.Trig trig = Trigger.findTrigger(sine, 0, sine.period(), 5, true, 1e-9);
+        assertFalse(trig.isFound());
+    }
+
+    public void testClosedFormMatchesSearch() {
+        Signal[] signals = new Signal[]{
+                new Sine(3, 2 * Math.PI * 50, 0.3, 0.5),
+                new Square(2, 2 * Math.PI * 1000, 1, 0.2),
+                new Triangle(4, 2 * Math.PI * 7, 2, -1),
+                new Sawtooth(1.5, 2 * Math.PI * 300, 0.5, 0.3)};
+        double eps = 1e-12;
+        for (Slope slope : Slope.values()) {
+            boolean up = slope == Slope.up;
+            for (Signal s : signals)
+                for (double f : new double[]{1, -0.7}) {
+                    PeriodicSignal sig = s.affine(f, 0.1);
+                    assertTrue(sig instanceof Signal);
+                    for (double level : new double[]{-0.9, 0, 0.4, 1.1}) {
+                        double t0 = 0.123;
+                        double t1 = t0 + sig.period();
+                        Trigger.Trig exact = Trigger.findTrigger(sig, t0, t1, level, up, eps);
+                        Trigger.Trig search = Trigger.findTrigger(new Counter(sig), t0, t1, level, up, eps);
+                        assertEquals(search.isFound(), exact.isFound());
+                        if (exact.isFound())
+                            assertEquals(search.getT(), exact.getT(), 1e-9);
+                    }
+                }
+        }
+    }
+
+    public void testClosedFormLateStart() {
+        Sine sine = new Sine(3, 2 * Math.PI * 1e5, 0, 0);
+        Trigger.Trig trig = Trigger.findTrigger(sine, 10.00000123, 11, 0, true, 1);
+        assertTrue(trig.isFound());
+        assertEquals(10.00001, trig.getT(), 1e-12);
+    }
+
+    private static final class Counter implements PeriodicSignal {
+        private final PeriodicSignal s;
+        private int count;
+
+        private Counter(PeriodicSignal s) {
+            this.s = s;
+        }
+
+        @Override
+        public double v(double t) {
+            count++;
+            return s.v(t);
+        }
+
+        @Override
+        public double period() {
+            return s.period();
+        }
+
+        @Override
+        public double mean() {
+            return s.mean();
+        }
+    }
+}
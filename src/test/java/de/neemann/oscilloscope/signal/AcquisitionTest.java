@@ -0,0 +1,59 @@
+package de.neemann.oscilloscope.signal;
+
+import junit.framework.TestCase;
+
+public class AcquisitionTest extends TestCase {
+
+    public void testSampledOnce() {
+        CountingSignal s = new CountingSignal();
+        Acquisition a = new Acquisition();
+        a.start(1, 0.5);
+
+        double[] buffer = new double[100];
+        a.get(s, 10, buffer, 20);
+        check(buffer, 10, 20);
+        assertEquals(20, s.count);
+
+        a.get(s, 25, buffer, 20);
+        check(buffer, 25, 20);
+        assertEquals(35, s.count);
+
+        a.get(s, 0, buffer, 50);
+        check(buffer, 0, 50);
+        assertEquals(50, s.count);
+
+        a.get(s, 5, buffer, 30);
+        check(buffer, 5, 30);
+        assertEquals(50, s.count);
+
+        a.start(1, 0.5);
+        a.get(s, 5, buffer, 30);
+        check(buffer, 5, 30);
+        assertEquals(80, s.count);
+    }
+
+    private void check(double[] buffer, int from, int n) {
+        for (int i = 0; i < n; i++)
+            assertEquals(1 + (from + i) * 0.5, buffer[i], 1e-10);
+    }
+
+    private static final class CountingSignal implements PeriodicSignal {
+        private int count;
+
+        @Override
+        public double v(double t) {
+            count++;
+            return t;
+        }
+
+        @Override
+        public double period() {
+            return 1;
+        }
+
+        @Override
+        public double mean() {
+            return 0;
+        }
+    }
+}
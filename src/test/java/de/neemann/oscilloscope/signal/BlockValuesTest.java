@@ -0,0 +1,38 @@
+package de.neemann.oscilloscope.signal;
+
+import de.neemann.oscilloscope.signal.primitives.*;
+import junit.framework.TestCase;
+
+public class BlockValuesTest extends TestCase {
+
+    private static final int N = 1000;
+
+    public void testPrimitives() {
+        check(new Sine(2, 1000, 0.3, 1));
+        check(new Square(2, 1000, 0.3, 1));
+        check(new Triangle(2, 1000, 0.3, 1));
+        check(new Sawtooth(2, 1000, 0.3, 1));
+    }
+
+    public void testComposed() {
+        check(new Sum(new Sine(2, 1000, 0.3, 1), new Triangle(1, 3000, 0, 0)));
+        check(new SignalFunc(new Sine(2, 1000, 0.3, 1), x -> x * x, 0));
+        check(new ValueToScreen(new Sine(20, 1000, 0.3, 1), 0.5, 8, 400));
+
+        double[] values = new double[37];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Math.sin(i);
+        check(new PeriodicInterpolate(0.01, values));
+    }
+
+    private void check(PeriodicSignal s) {
+        double t0 = 1.2345;
+        double dt = s.period() / 97;
+        double[] buffer = new double[N];
+        s.values(t0, dt, buffer, N);
+        for (int i = 0; i < N; i++) {
+            assertEquals(s.getClass().getSimpleName() + ": " + i, s.v(t0 + i * dt), buffer[i], 1e-6);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package de.neemann.oscilloscope.signal;
+
+import de.neemann.oscilloscope.signal.primitives.*;
+import junit.framework.TestCase;
+
+public class EnvelopeTest extends TestCase {
+
+    private static final int N = 100;
+
+    public void testPrimitives() {
+        for (double f : new double[]{97, 7.3, 2.5, 0.3}) {
+            check(new Sine(2, 1000, 0.3, 1), f, true);
+            check(new Sine(-2, 1000, 0.3, 1), f, true);
+            check(new Square(2, 1000, 0.3, 1), f, true);
+            check(new Triangle(2, 1000, 0.3, 1), f, true);
+            check(new Triangle(-2, 1000, 0.3, 1), f, true);
+            check(new Sawtooth(2, 1000, 0.3, 1), f, true);
+            check(new Sawtooth(-2, 1000, 0.3, 1), f, true);
+        }
+    }
+
+    public void testInterpolate() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Math.sin(i * 0.1) + 0.3 * Math.sin(i * 1.7);
+        PeriodicInterpolate pi = new PeriodicInterpolate(0.01, values);
+        for (double f : new double[]{3000, 97, 7.3, 2.5, 0.3}) {
+            check(pi, f, true);
+            check(pi.affine(-2, 1), f, true);
+        }
+    }
+
+    public void testComposed() {
+        for (double f : new double[]{97, 2.5, 0.3}) {
+            check(new Sum(new Sine(2, 1000, 0.3, 1), new Triangle(1, 3000, 0, 0)), f, false);
+            check(new ValueToScreen(new Sine(20, 1000, 0.3, 1), 0.5, 8, 400), f, true);
+        }
+    }
+
+    /**
+     * Compares the envelope with the extrema of densely placed samples.
+     *
+     * @param s     the signal
+     * @param f     the number of intervals per period
+     * @param tight true if the envelope has to be exact
+     */
+    private void check(PeriodicSignal s, double f, boolean tight) {
+        double t0 = 1.2345;
+        double dt = s.period() / f;
+        double[] min = new double[N + 1];
+        double[] max = new double[N];
+        s.values(t0, dt, min, N + 1);
+        s.envelope(t0, dt, min, max, N);
+
+        // the sampling can miss a steep extremum slightly
+        double tol = 0.05;
+        int sub = (int) (2000 * Math.max(1, 3 / f));
+        for (int i = 0; i < N; i++) {
+            double mi = Double.POSITIVE_INFINITY;
+            double ma = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j <= sub; j++) {
+                double v = s.v(t0 + (i + j / (double) sub) * dt);
+                mi = Math.min(mi, v);
+                ma = Math.max(ma, v);
+            }
+            String name = s.getClass().getSimpleName() + ", f=" + f + ": " + i;
+            assertTrue(name, min[i] <= mi + 1e-9);
+            assertTrue(name, max[i] >= ma - 1e-9);
+            if (tight) {
+                assertEquals(name, mi, min[i], tol);
+                assertEquals(name, ma, max[i], tol);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package de.neemann.oscilloscope.signal;
+
+import de.neemann.oscilloscope.draw.elements.Coupling;
+import de.neemann.oscilloscope.draw.elements.SelectorKnob;
+import de.neemann.oscilloscope.draw.elements.TimeBase;
+import de.neemann.oscilloscope.draw.elements.osco.Oscilloscope;
+import de.neemann.oscilloscope.draw.graphics.Style;
+import de.neemann.oscilloscope.signal.primitives.Sine;
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+
+public class ModelTimeCalcTest extends TestCase {
+    private static final int SCREEN = Style.SCREEN.getColor().getRGB() & 0xffffff;
+
+    public void testAccumulationToggleRedraws() {
+        Oscilloscope osco = new Oscilloscope();
+        osco.getCh1().getInput().setSignal(new Sine(2, 2 * Math.PI * 1000, 0, 0));
+        osco.getCh1().getCouplingSwitch().set(Coupling.DC.ordinal());
+        osco.getCh1().getPosPoti().set(0.5);
+        osco.getTrigger().getLevelPoti().set(0.5);
+        SelectorKnob<TimeBase> tb = osco.getHorizontal().getTimeBaseKnob();
+        for (int i = 0; i < tb.getItems().size(); i++)
+            if (Math.abs(tb.getItems().get(i).getMag() - 2e-4) < 1e-9)
+                tb.set(i);
+        assertFalse(osco.getHorizontal().isXY());
+
+        // every frame shows the sine in the same phase
+        ModelTimeCalc model = new ModelTimeCalc(osco, SimulationClock.fixedStep(20 * SimulationClock.NANOS_PER_SECOND / 1000));
+        ScreenBuffer sb = new ScreenBuffer(200, 160);
+        model.updateBuffer(sb);
+        sb.publish();
+        int lit = litPixels(sb);
+        assertTrue(lit > 0);
+
+        try {
+            ScreenBuffer.setAccumulation(true);
+            model.updateBuffer(sb);
+            sb.publish();
+        } finally {
+            ScreenBuffer.setAccumulation(false);
+        }
+
+        // the energies of the accumulation mode are no intensities
+        model.updateBuffer(sb);
+        assertNotNull(sb.publish());
+        assertEquals(lit, litPixels(sb), lit / 10);
+
+        // a palette change resolves the stored intensities again
+        try {
+            ScreenBuffer.setPhosphor(Phosphor.AMBER);
+            sb.publish();
+            assertEquals(lit, litPixels(sb), lit / 10);
+        } finally {
+            ScreenBuffer.setPhosphor(Phosphor.P31);
+        }
+    }
+
+    private static int litPixels(ScreenBuffer sb) {
+        BufferedImage image = new BufferedImage(sb.getWidth(), sb.getHeight(), BufferedImage.TYPE_INT_RGB);
+        sb.drawBufferTo(image.createGraphics(), 0, 0);
+        int lit = 0;
+        for (int y = 0; y < image.getHeight(); y++)
+            for (int x = 0; x < image.getWidth(); x++)
+                if ((image.getRGB(x, y) & 0xffffff) != SCREEN)
+                    lit++;
+        return lit;
+    }
+}
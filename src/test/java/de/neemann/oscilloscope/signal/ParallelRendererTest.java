@@ -0,0 +1,54 @@
+package de.neemann.oscilloscope.signal;
+
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+public class ParallelRendererTest extends TestCase {
+
+    public void testSameAsSequential() {
+        int width = 200;
+        int height = 160;
+        int n = 10000;
+        int[] c = new int[n + 1];
+        Random r = new Random(1);
+        for (int i = 0; i < c.length; i++)
+            c[i] = r.nextInt(width) << 16 | r.nextInt(height);
+        ParallelRenderer.Painter painter = (g, from, to) -> {
+            for (int i = from; i < to; i++)
+                g.drawTrace(c[i] >> 16, c[i] & 0xffff, c[i + 1] >> 16, c[i + 1] & 0xffff);
+        };
+
+        ScreenBuffer sequential = new ScreenBuffer(width, height);
+        ScreenBuffer parallel = new ScreenBuffer(width, height);
+        ParallelRenderer renderer = new ParallelRenderer();
+        boolean enabled = ParallelRenderer.isEnabled();
+        try {
+            for (int frame = 0; frame < 2; frame++) {
+                ParallelRenderer.setEnabled(false);
+                renderer.render(sequential, n, painter);
+                ParallelRenderer.setEnabled(true);
+                renderer.render(parallel, n, painter);
+                sequential.darken();
+                parallel.darken();
+            }
+        } finally {
+            ParallelRenderer.setEnabled(enabled);
+        }
+
+        BufferedImage expected = present(sequential);
+        BufferedImage found = present(parallel);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                assertEquals(expected.getRGB(x, y), found.getRGB(x, y));
+    }
+
+    private static BufferedImage present(ScreenBuffer sb) {
+        BufferedImage image = new BufferedImage(sb.getWidth(), sb.getHeight(), BufferedImage.TYPE_INT_RGB);
+        sb.publish();
+        sb.drawBufferTo(image.createGraphics(), 0, 0);
+        return image;
+    }
+
+}
@@ -4,14 +4,326 @@ import de.neemann.oscilloscope.draw.graphics.Style;
 import junit.framework.TestCase;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static de.neemann.oscilloscope.signal.ScreenBuffer.MIN_TRACE_BRIGHT;
 
 public class ScreenBufferTest extends TestCase {
 
+    private static final int SCREEN = Style.SCREEN.getColor().getRGB() & 0xffffff;
+
     public void testColorTable() {
-        assertEquals(Style.SCREEN.getColor().getGreen() + MIN_TRACE_BRIGHT, ScreenBuffer.SPEEDCOLOR[ScreenBuffer.SPEEDCOLOR.length - 1].getGreen());
-        assertEquals(Color.GREEN, ScreenBuffer.SPEEDCOLOR[0]);
+        int[] palette = Phosphor.P31.getPalette();
+        int dimmest = ScreenBuffer.SPEEDINTENSITY[ScreenBuffer.SPEEDINTENSITY.length - 1];
+        assertEquals(Style.SCREEN.getColor().getGreen() + MIN_TRACE_BRIGHT, (palette[dimmest] >> 8) & 0xff, 1);
+        assertEquals(ScreenBuffer.MAX_INTENSITY, ScreenBuffer.SPEEDINTENSITY[0]);
+        assertEquals(Color.GREEN.getRGB(), palette[ScreenBuffer.MAX_INTENSITY]);
+        for (Phosphor p : Phosphor.values())
+            assertEquals(Style.SCREEN.getColor().getRGB(), p.getPalette()[0]);
+    }
+
+    public void testHorizontalLine() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawBrightTrace(2, 5, 12, 5);
+        for (int x = 0; x < 20; x++)
+            assertEquals(x >= 2 && x <= 12 ? 0x00ff00 : SCREEN, sb.getPixel(x, 5));
+        assertEquals(SCREEN, sb.getPixel(5, 4));
+        assertEquals(SCREEN, sb.getPixel(5, 6));
+    }
+
+    public void testRowMapping() {
+        // y is mapped to the image row height-y, so the center line of the
+        // screen is at the center line of the graticule
+        ScreenBuffer sb = new ScreenBuffer(20, 160);
+        sb.drawBrightTrace(0, 80, 19, 80);
+        assertEquals(new Rectangle(0, 80, 20, 1), sb.publish());
+
+        // rows 1..height are visible
+        sb.clear();
+        sb.publish();
+        sb.drawBrightTrace(0, 0, 19, 0);
+        sb.drawBrightTrace(0, 160, 19, 160);
+        assertEquals(new Rectangle(0, 0, 20, 1), sb.publish());
+    }
+
+    public void testDarken() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawBrightTrace(0, 5, 19, 5);
+        int g = 0xff;
+        for (int i = 0; i < 5; i++) {
+            sb.darken();
+            int gn = sb.getPixel(3, 5) >> 8;
+            assertTrue(gn < g);
+            assertTrue(gn > (SCREEN >> 8));
+            g = gn;
+        }
+        assertEquals(SCREEN, sb.getPixel(3, 4));
+    }
+
+    public void testDarkenToBackground() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        for (int j = 0; j < 2; j++) {
+            sb.drawBrightTrace(0, 5, 19, 5);
+            for (int i = 0; i < 20; i++)
+                sb.darken();
+            assertEquals(SCREEN, sb.getPixel(3, 5));
+        }
+    }
+
+    public void testLazyDecay() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.darken();
+        sb.darken();
+        int twoSteps = sb.getPixel(3, 5);
+
+        // the same number of decay steps gives the same color, regardless of when the pixels are calculated
+        sb.clear();
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.getPixel(3, 5);
+        sb.darken();
+        sb.getPixel(3, 5);
+        sb.darken();
+        assertEquals(twoSteps, sb.getPixel(3, 5));
+
+        // a new hit brightens the pixel again
+        sb.drawBrightTrace(0, 5, 19, 5);
+        assertEquals(0x00ff00, sb.getPixel(3, 5));
+    }
+
+    public void testAccumulation() {
+        ScreenBuffer.setAccumulation(true);
+        try {
+            ScreenBuffer sb = new ScreenBuffer(30, 10);
+            // slow beam
+            sb.drawTrace(0, 2, 9, 2);
+            // fast beam
+            sb.drawTrace(0, 5, 5, 25);
+            int slow = sb.getPixel(3, 2) >> 8;
+            int fast = sb.getPixel(1, 9) >> 8;
+            assertTrue(slow > fast);
+            assertTrue(fast > SCREEN >> 8);
+
+            // the energies of several hits add up
+            sb.drawTrace(0, 5, 5, 25);
+            assertTrue(sb.getPixel(1, 9) >> 8 > fast);
+
+            // the tone mapping saturates
+            for (int i = 0; i < 100; i++)
+                sb.drawBrightTrace(20, 5, 29, 5);
+            assertEquals(0xff, sb.getPixel(25, 5) >> 8, 1);
+        } finally {
+            ScreenBuffer.setAccumulation(false);
+        }
+    }
+
+    public void testDiagonalLine() {
+        ScreenBuffer sb = new ScreenBuffer(20, 20);
+        sb.drawBrightTrace(0, 1, 19, 20);
+        for (int i = 0; i < 20; i++)
+            assertEquals(0x00ff00, sb.getPixel(i, i + 1));
+    }
+
+    public void testAntialiasing() {
+        ScreenBuffer sb = new ScreenBuffer(20, 20);
+        sb.drawBrightTrace(0, 1, 10, 6);
+        // at x=1 the line is at y=1.5, so both pixels are half covered
+        int g0 = sb.getPixel(1, 1) >> 8 & 0xff;
+        int g1 = sb.getPixel(1, 2) >> 8 & 0xff;
+        int bg = SCREEN >> 8 & 0xff;
+        assertTrue(g0 > bg && g0 < 0xff);
+        assertEquals(g0, g1);
+    }
+
+    public void testBrightestWins() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.drawTrace(10, 0, 10, 9, 1000);
+        assertEquals(0x00ff00, sb.getPixel(10, 5));
+        int dim = Phosphor.P31.getPalette()[ScreenBuffer.SPEEDINTENSITY[ScreenBuffer.SPEEDINTENSITY.length - 1]];
+        assertEquals(dim & 0xffffff, sb.getPixel(10, 2), 0x100);
+    }
+
+    public void testClipping() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawTrace(-100000, 5, 100000, 5, 0);
+        sb.drawTrace(5, -100000, 5, 100000, 0);
+        sb.drawTrace(-50, -50, -10, -10, 0);
+        assertEquals(0x00ff00, sb.getPixel(0, 5));
+        assertEquals(0x00ff00, sb.getPixel(19, 5));
+        assertEquals(0x00ff00, sb.getPixel(5, 1));
+        assertEquals(0x00ff00, sb.getPixel(5, 10));
+    }
+
+    /**
+     * Checks that the presenter only shows published frames and that the
+     * images reused by the render thread show no traces of older frames.
+     */
+    public void testTripleBuffer() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.drawBufferTo(g, 0, 0);
+        // frame not yet published
+        assertEquals(SCREEN, image.getRGB(3, 5) & 0xffffff);
+
+        sb.publish();
+        sb.drawBufferTo(g, 0, 0);
+        assertEquals(0x00ff00, image.getRGB(3, 5) & 0xffffff);
+
+        // the presenter keeps the last frame until a new one is published
+        sb.clear();
+        sb.drawBrightTrace(0, 2, 19, 2);
+        sb.drawBufferTo(g, 0, 0);
+        assertEquals(0x00ff00, image.getRGB(3, 5) & 0xffffff);
+
+        // images reused by the render thread must not show old traces
+        for (int i = 0; i < 3; i++) {
+            sb.publish();
+            sb.drawBufferTo(g, 0, 0);
+            assertEquals(SCREEN, image.getRGB(3, 5) & 0xffffff);
+            assertEquals(0x00ff00, image.getRGB(3, 8) & 0xffffff);
+            sb.drawBrightTrace(0, 2, 19, 2);
+        }
     }
 
-}
\ No newline at end of file
+    public void testPhosphor() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.publish();
+        assertNull(sb.publish());
+        try {
+            ScreenBuffer.setPhosphor(Phosphor.AMBER);
+            // a new phosphor requires a new frame even if nothing was drawn
+            assertEquals(new Rectangle(0, 5, 20, 1), sb.publish());
+            assertEquals(0xffb000, sb.getPixel(3, 5));
+            assertEquals(SCREEN, sb.getPixel(3, 4));
+        } finally {
+            ScreenBuffer.setPhosphor(Phosphor.P31);
+        }
+    }
+
+    public void testChangedRegion() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        assertNull(sb.publish());
+
+        sb.drawBrightTrace(2, 5, 12, 5);
+        assertEquals(new Rectangle(2, 5, 11, 1), sb.publish());
+        assertNull(sb.publish());
+
+        // the old trace has to be removed and the new one drawn
+        sb.clear();
+        sb.drawBrightTrace(4, 1, 6, 1);
+        assertEquals(new Rectangle(2, 5, 11, 5), sb.publish());
+
+        // decay changes the lit pixels only
+        sb.darken();
+        assertEquals(new Rectangle(4, 9, 3, 1), sb.publish());
+    }
+
+    public void testAcceleratedFallback() {
+        ScreenBuffer sb = new ScreenBuffer(20, 10);
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        sb.drawBrightTrace(0, 5, 19, 5);
+        sb.publish();
+        try {
+            ScreenBuffer.setAccelerated(true);
+            // an image is not a screen, so the frame is copied directly
+            sb.drawBufferTo(image.createGraphics(), 0, 0);
+            assertEquals(0x00ff00, image.getRGB(3, 5) & 0xffffff);
+        } finally {
+            ScreenBuffer.setAccelerated(false);
+        }
+    }
+
+    public void testConcurrentHandoff() throws InterruptedException {
+        final int width = 50;
+        final int height = 40;
+        ScreenBuffer sb = new ScreenBuffer(width, height);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread render = new Thread(() -> {
+            int row = 1;
+            while (running.get()) {
+                sb.clear();
+                sb.drawBrightTrace(0, row, width - 1, row);
+                sb.publish();
+                row = row % height + 1;
+            }
+        });
+        render.start();
+        try {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            long end = System.currentTimeMillis() + 200;
+            while (System.currentTimeMillis() < end) {
+                sb.drawBufferTo(g, 0, 0);
+                // every presented frame is complete and contains exactly one trace
+                int litRows = 0;
+                for (int y = 0; y < height; y++) {
+                    int litPixels = 0;
+                    for (int x = 0; x < width; x++)
+                        if ((image.getRGB(x, y) & 0xffffff) != SCREEN)
+                            litPixels++;
+                    if (litPixels > 0) {
+                        assertEquals(width, litPixels);
+                        litRows++;
+                    }
+                }
+                assertTrue(litRows <= 1);
+            }
+        } finally {
+            running.set(false);
+            render.join();
+        }
+    }
+
+    /**
+     * Compares the raster renderer with drawing the segments by Java2D,
+     * which the screen buffer did before.
+     */
+    public void testMatchesJava2D() {
+        int width = 600;
+        int height = 480;
+        int n = 2000;
+        int[] c = new int[n * 4];
+        Random r = new Random(1);
+        int x = 0;
+        int y = height / 2;
+        for (int i = 0; i < n; i++) {
+            int nx = (x + 1) % width;
+            int ny = Math.max(1, Math.min(height, y + r.nextInt(21) - 10));
+            c[i * 4] = x;
+            c[i * 4 + 1] = y;
+            c[i * 4 + 2] = nx;
+            c[i * 4 + 3] = ny;
+            x = nx;
+            y = ny;
+        }
+
+        ScreenBuffer sb = new ScreenBuffer(width, height);
+        BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = expected.createGraphics();
+        g2d.setColor(Color.WHITE);
+        for (int i = 0; i < n; i++) {
+            sb.drawTrace(c[i * 4], c[i * 4 + 1], c[i * 4 + 2], c[i * 4 + 3]);
+            g2d.drawLine(c[i * 4], height - c[i * 4 + 1], c[i * 4 + 2], height - c[i * 4 + 3]);
+        }
+        sb.publish();
+        BufferedImage found = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        sb.drawBufferTo(found.createGraphics(), 0, 0);
+
+        // every pixel drawn by Java2D is lit by the raster renderer
+        int pixels = 0;
+        for (int row = 0; row < height; row++)
+            for (int col = 0; col < width; col++)
+                if ((expected.getRGB(col, row) & 0xffffff) != 0) {
+                    assertTrue(col + "," + row, (found.getRGB(col, row) & 0xffffff) != SCREEN);
+                    pixels++;
+                }
+        assertTrue(pixels > n);
+    }
+}
@@ -0,0 +1,38 @@
+package de.neemann.oscilloscope.signal;
+
+import junit.framework.TestCase;
+
+public class SimulationClockTest extends TestCase {
+
+    public void testFixedStep() {
+        SimulationClock c = SimulationClock.fixedStep(5);
+        assertEquals(0, c.nextFrame());
+        assertEquals(5, c.nextFrame());
+        assertEquals(10, c.nextFrame());
+    }
+
+    public void testFixedStepSeconds() {
+        SimulationClock c = SimulationClock.fixedStep(20 * SimulationClock.NANOS_PER_SECOND / 1000);
+        assertEquals(0, c.nextFrameSeconds(), 0);
+        assertEquals(0.02, c.nextFrameSeconds(), 1e-12);
+        assertEquals(0.04, c.nextFrameSeconds(), 1e-12);
+    }
+
+    public void testWallClock() throws InterruptedException {
+        SimulationClock c = SimulationClock.wallClock();
+        long t0 = c.nextFrame();
+        Thread.sleep(10);
+        long t1 = c.nextFrame();
+        assertTrue(t0 >= 0);
+        assertTrue(t1 - t0 >= 10 * SimulationClock.NANOS_PER_SECOND / 1000);
+    }
+
+    public void testInvalidStep() {
+        try {
+            SimulationClock.fixedStep(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
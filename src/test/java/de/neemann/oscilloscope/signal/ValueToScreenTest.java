@@ -0,0 +1,42 @@
+package de.neemann.oscilloscope.signal;
+
+import de.neemann.oscilloscope.signal.primitives.*;
+import junit.framework.TestCase;
+
+public class ValueToScreenTest extends TestCase {
+
+    public void testFolding() {
+        PeriodicSignal s = new Sine(2, 1000, 0.3, 1).affine(3, -1);
+        assertTrue(s instanceof Sine);
+        Sine sine = (Sine) s;
+        assertEquals(6, sine.getAmplitude(), 1e-10);
+        assertEquals(2, sine.getOffset(), 1e-10);
+
+        assertTrue(new Triangle(2, 1000, 0.3, 1).affine(0, 2) instanceof Constant);
+        assertTrue(new Affine(new SignalFunc(sine, x -> x, 0), 2, 1).affine(2, 1) instanceof Affine);
+    }
+
+    public void testScreen() {
+        check(new Sine(3, 1000, 0.3, 1), 0.5);
+        check(new Square(3, 1000, 0.3, 1), 0.7);
+        check(new Triangle(30, 1000, 0.3, 1), 0.2);
+        check(new Sawtooth(3, 1000, 0.3, 1), 0.5);
+        check(new Sum(new Sine(3, 1000, 0.3, 1), new Sine(1, 3000, 0, 0)), 0.5);
+        check(new SignalFunc(new Sine(30, 1000, 0.3, 1), x -> x * x, 0), 0.5);
+    }
+
+    private void check(PeriodicSignal sig, double pos) {
+        int divs = 8;
+        int pixels = 400;
+        ValueToScreen screen = new ValueToScreen(sig.affine(0.5, 1), pos, divs, pixels);
+        for (int i = 0; i < 1000; i++) {
+            double t = i * sig.period() / 97;
+            double div = sig.v(t) * 0.5 + 1 + divs / 2 + (pos - 0.5) * 20;
+            if (div > divs * 2)
+                div = divs * 2;
+            else if (div < -divs)
+                div = -divs;
+            assertEquals(div * pixels / divs, screen.v(t), 1e-8);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package de.neemann.oscilloscope.signal.primitives;
+
+import de.neemann.oscilloscope.signal.PiecewiseLinear;
+import junit.framework.TestCase;
+
+public class PiecewiseLinearTest extends TestCase {
+
+    public void testVertices() {
+        Signal[] signals = new Signal[]{
+                new Square(2, 1000, 0.3, 1),
+                new Triangle(2, 1000, 0.3, 1),
+                new Sawtooth(2, 1000, 0.3, 1)};
+        for (Signal s : signals) {
+            check((PiecewiseLinear) s);
+            PiecewiseLinear a = (PiecewiseLinear) s.affine(-3, 0.5);
+            check(a);
+        }
+    }
+
+    private void check(PiecewiseLinear s) {
+        double t0 = 1.2345;
+        double t1 = t0 + s.period() * 3.7;
+        double[] time = new double[100];
+        double[] value = new double[100];
+        int n = s.vertices(t0, t1, time, value);
+        assertTrue(n > 4);
+        assertEquals(t0, time[0], 0);
+        assertEquals(t1, time[n - 1], 0);
+        for (int i = 1; i < n; i++) {
+            assertTrue(time[i] >= time[i - 1]);
+            if (time[i] > time[i - 1]) {
+                // inside a segment the signal is linear
+                for (double f : new double[]{0.1, 0.5, 0.9}) {
+                    double t = time[i - 1] + (time[i] - time[i - 1]) * f;
+                    double exp = value[i - 1] + (value[i] - value[i - 1]) * f;
+                    assertEquals(s.getClass().getSimpleName(), exp, s.v(t), 1e-6);
+                }
+            }
+        }
+    }
+
+    public void testTooSmall() {
+        Square s = new Square(1, 1000, 0, 0);
+        assertEquals(-1, s.vertices(0, s.period() * 10, new double[8], new double[8]));
+        assertEquals(4, s.vertices(0.1 * s.period(), 0.6 * s.period(), new double[8], new double[8]));
+    }
+}
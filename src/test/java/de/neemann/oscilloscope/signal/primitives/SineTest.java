@@ -0,0 +1,47 @@
+package de.neemann.oscilloscope.signal.primitives;
+
+import junit.framework.TestCase;
+
+public class SineTest extends TestCase {
+
+    public void testAccuracy() {
+        double[] omegas = {2 * Math.PI * 10, 2 * Math.PI * 1000, 2 * Math.PI * 100000};
+        double[] phases = {0, 1, -2.5};
+        for (double omega : omegas)
+            for (double phase : phases) {
+                Sine sine = new Sine(10, omega, phase, 3);
+                checkBlock(sine, 0, sine.period() / 500, 100000);
+                checkBlock(sine, 123.456, sine.period() / 3.7, 10000);
+                checkBlock(sine, 7.1, sine.period() * 0.999, 1000);
+            }
+    }
+
+    public void testShortBlocks() {
+        Sine sine = new Sine(1, 2 * Math.PI * 50, 0.5, 0);
+        for (int n = 0; n < 600; n += 7)
+            checkBlock(sine, 0.3, sine.period() / 100, n);
+    }
+
+    private void checkBlock(Sine sine, double t0, double dt, int n) {
+        double[] buffer = new double[n];
+        sine.values(t0, dt, buffer, n);
+        for (int i = 0; i < n; i++) {
+            double t = t0 + i * dt;
+            double arg = sine.getOmega() * t + sine.getPhase();
+            double exp = sine.getAmplitude() * Math.sin(arg) + sine.getOffset();
+            // the argument itself is only known up to its ulp
+            double eps = sine.getAmplitude() * (1e-11 + 16 * Math.ulp(arg));
+            assertEquals("n=" + n + ", i=" + i, exp, buffer[i], eps);
+        }
+    }
+
+    public void testBlockMatchesV() {
+        Sine sine = new Sine(1, 2 * Math.PI * 1000, 0.5, 0);
+        int n = 10000;
+        double dt = sine.period() / 333;
+        double[] buffer = new double[n];
+        sine.values(0, dt, buffer, n);
+        for (int i = 0; i < n; i++)
+            assertEquals("i=" + i, sine.v(i * dt), buffer[i], 1e-9);
+    }
+}
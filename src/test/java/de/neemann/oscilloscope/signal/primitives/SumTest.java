@@ -28,18 +28,38 @@ public class SumTest extends TestCase {
             new TC(1, 1, 1),
             new TC(2, 2, 2),
             new TC(1, 2, 2),
-            new TC(1, 3, 1.5),
+            new TC(1, 3, 3),
             new TC(2, 3, 6),
             new TC(2, 2.1, 42),
+            new TC(3, 2, 6),
+            new TC(0.001, 0.0015, 0.003),
     };
 
     public void testSimple() {
         for (TC tc : tests) {
             Sum s = new Sum(new TPS(tc.p1), new TPS(tc.p2));
             assertEquals(tc.toString(), tc.ps, s.period(), 1e-7);
+            assertTrue(tc.toString(), s.isPeriodic());
+            assertEquals(tc.toString(), Math.min(tc.p1, tc.p2), s.shortestPeriod(), 1e-12);
         }
     }
 
+    public void testIncommensurate() {
+        // slightly detuned: the beat period would be 10001
+        Sum s = new Sum(new TPS(1), new TPS(1.0001));
+        assertFalse(s.isPeriodic());
+        assertEquals(1.0001, s.period(), 1e-12);
+        assertEquals(1, s.shortestPeriod(), 1e-12);
+
+        s = new Sum(new TPS(1), new TPS(Math.sqrt(2)));
+        assertFalse(s.isPeriodic());
+        assertEquals(Math.sqrt(2), s.period(), 1e-12);
+
+        Sum nested = new Sum(s, new TPS(0.5));
+        assertFalse(nested.isPeriodic());
+        assertEquals(0.5, nested.shortestPeriod(), 1e-12);
+    }
+
     private static class TPS implements PeriodicSignal {
         private final double period;
 